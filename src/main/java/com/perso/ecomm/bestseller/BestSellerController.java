@@ -0,0 +1,57 @@
+package com.perso.ecomm.bestseller;
+
+import com.perso.ecomm.exception.RequestValidationException;
+import com.perso.ecomm.playLoad.response.BestSellerResponse;
+import com.perso.ecomm.product.Product;
+import com.perso.ecomm.product.ProductService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping(path = "bestsellers")
+public class BestSellerController {
+
+    private final BestSellers bestSellers;
+    private final ProductService productService;
+
+    public BestSellerController(BestSellers bestSellers, ProductService productService) {
+        this.bestSellers = bestSellers;
+        this.productService = productService;
+    }
+
+    // best sellers of the last hour, day or week, overall or in one category
+    @GetMapping
+    public List<BestSellerResponse> getBestSellers(
+            @RequestParam(value = "window", defaultValue = "day") String window,
+            @RequestParam(value = "category", required = false) Long categoryId,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        List<BestSellers.Seller> sellers = bestSellers.top(parseWindow(window), categoryId, Math.max(limit, 1));
+        Map<Long, Product> products = productService.getProductsInOrder(
+                        sellers.stream().map(BestSellers.Seller::productId).toList()).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        List<BestSellerResponse> response = new ArrayList<>(sellers.size());
+        for (BestSellers.Seller seller : sellers) {
+            Product product = products.get(seller.productId());
+            if (product != null) {
+                response.add(new BestSellerResponse(product, seller.quantity()));
+            }
+        }
+        return response;
+    }
+
+    private static BestSellers.Window parseWindow(String window) {
+        try {
+            return BestSellers.Window.valueOf(window.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException("Unknown window " + window + ", expected hour, day or week");
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.perso.ecomm.bestseller;
+
+import com.perso.ecomm.orders.order.OrderCancelledEvent;
+import com.perso.ecomm.orders.order.OrderPlacedEvent;
+import com.perso.ecomm.orders.order.OrderRepository;
+import com.perso.ecomm.orders.order.OrderStatus;
+import com.perso.ecomm.orders.orderItem.OrderItemRepository;
+import com.perso.ecomm.orders.orderItem.OrderLine;
+import com.perso.ecomm.product.Product;
+import com.perso.ecomm.product.ProductChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Best sellers of the last hour, day and week, overall and per category.
+ * <p>
+ * Quantities sold are counted in time buckets held in ring buffers: one-minute buckets for the
+ * hour, one-hour buckets for the day and the week. Each window keeps a running total per product
+ * and a ranking ordered by that total; a sale adds to the current bucket and to the totals, and
+ * when a bucket leaves a window its quantities are subtracted from that window's totals. After
+ * every change the top {@code bestsellers.size} of each touched ranking is copied into a
+ * snapshot, so a read never sorts or aggregates anything.
+ * <p>
+ * Built at startup from the last week of orders, kept current from {@link OrderPlacedEvent}s and
+ * {@link OrderCancelledEvent}s, and moved forward every {@code bestsellers.tick-ms}.
+ */
+@Slf4j
+@Component
+public class BestSellers {
+
+    public enum Window {
+        HOUR(Granularity.MINUTE, 60),
+        DAY(Granularity.HOUR, 24),
+        WEEK(Granularity.HOUR, 168);
+
+        private final Granularity granularity;
+        private final int span;
+
+        Window(Granularity granularity, int span) {
+            this.granularity = granularity;
+            this.span = span;
+        }
+    }
+
+    private enum Granularity {
+        MINUTE(60_000L, 60),
+        HOUR(3_600_000L, 168);
+
+        private final long millis;
+        // the span of the widest window using these buckets
+        private final int slots;
+
+        Granularity(long millis, int slots) {
+            this.millis = millis;
+            this.slots = slots;
+        }
+    }
+
+    private static final Comparator<Seller> MOST_SOLD_FIRST = Comparator
+            .comparingInt(Seller::quantity).reversed()
+            .thenComparing(Seller::productId);
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int size;
+
+    private final Map<Granularity, Bucket[]> rings = new EnumMap<>(Granularity.class);
+    private final Map<Window, Tally> tallies = new EnumMap<>(Window.class);
+    // category of every product sold in the week
+    private final Map<Long, Long> categories = new HashMap<>();
+    private final Map<Board, List<Seller>> boards = new ConcurrentHashMap<>();
+
+    // orders up to this id are counted by the backfill, later ones by events
+    private volatile long backfilledThrough = Long.MAX_VALUE;
+    private volatile boolean backfilled;
+
+    public BestSellers(OrderRepository orderRepository,
+                       OrderItemRepository orderItemRepository,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${bestsellers.size:10}") int size) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.size = size;
+        long now = System.currentTimeMillis();
+        for (Granularity granularity : Granularity.values()) {
+            rings.put(granularity, new Bucket[granularity.slots]);
+        }
+        for (Window window : Window.values()) {
+            tallies.put(window, new Tally(window, now / window.granularity.millis - window.span));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long maxOrderId = orderRepository.findMaxOrderId();
+        backfilledThrough = maxOrderId;
+        long hour = Granularity.HOUR.millis;
+        Date since = new Date((System.currentTimeMillis() / hour - Window.WEEK.span + 1) * hour);
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<OrderLine> lines = orderItemRepository.streamLinesPlacedSince(maxOrderId, since, OrderStatus.CANCELED)) {
+                Iterator<OrderLine> iterator = lines.iterator();
+                List<OrderPlacedEvent.Line> order = new ArrayList<>();
+                long orderId = -1;
+                long placedAt = 0;
+                while (iterator.hasNext()) {
+                    OrderLine line = iterator.next();
+                    if (line.getOrderId() != orderId) {
+                        record(order, placedAt, 1, false);
+                        order.clear();
+                        orderId = line.getOrderId();
+                        placedAt = line.getOrderDate().getTime();
+                    }
+                    order.add(OrderPlacedEvent.Line.of(line));
+                }
+                record(order, placedAt, 1, true);
+            }
+        });
+        backfilled = true;
+        log.info("Best sellers built from orders up to {}: {} products sold this week", maxOrderId, categories.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        if (event.orderId() > backfilledThrough) {
+            record(event.lines(), placedAt(event.placedAt()), 1, true);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCancelled(OrderCancelledEvent event) {
+        // until the backfill ran, cancelled orders are left out by the backfill query itself
+        if (backfilled) {
+            record(event.lines(), placedAt(event.placedAt()), -1, true);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        for (Product product : event.saved()) {
+            Long previous = categories.get(product.getProductId());
+            Long current = product.getCategory() == null ? null : product.getCategory().getCategoryId();
+            if (categories.containsKey(product.getProductId()) && !Objects.equals(previous, current)) {
+                tallies.values().forEach(tally -> tally.recategorize(product.getProductId(), previous, current));
+                categories.put(product.getProductId(), current);
+            }
+        }
+        for (Long productId : event.deleted()) {
+            tallies.values().forEach(tally -> tally.add(productId, -tally.total(productId)));
+            categories.remove(productId);
+        }
+        publish();
+    }
+
+    @Scheduled(fixedDelayString = "${bestsellers.tick-ms:10000}")
+    public void tick() {
+        tick(System.currentTimeMillis());
+    }
+
+    synchronized void tick(long now) {
+        advance(now);
+        // forget categories of products no longer sold in any window
+        categories.keySet().removeIf(productId -> tallies.values().stream().allMatch(tally -> tally.total(productId) == 0));
+        publish();
+    }
+
+    /**
+     * Up to {@code limit} best sellers of the window, most sold first; overall when
+     * {@code categoryId} is null.
+     */
+    public List<Seller> top(Window window, Long categoryId, int limit) {
+        List<Seller> board = boards.getOrDefault(new Board(window, categoryId), List.of());
+        return board.subList(0, Math.min(limit, board.size()));
+    }
+
+    /**
+     * Quantity sold in the window of every product that sold at all, as a copy.
+     */
+    public synchronized Map<Long, Integer> quantitiesSold(Window window) {
+        return new HashMap<>(tallies.get(window).totals);
+    }
+
+    synchronized void record(List<OrderPlacedEvent.Line> lines, long placedAt, int sign, boolean publish) {
+        long now = System.currentTimeMillis();
+        advance(now);
+        // another node's clock may run ahead of ours
+        long time = Math.min(placedAt, now);
+        for (OrderPlacedEvent.Line line : lines) {
+            if (sign > 0 && line.categoryId() != null) {
+                categories.put(line.productId(), line.categoryId());
+            }
+            for (Granularity granularity : Granularity.values()) {
+                int applied = addToBucket(granularity, time / granularity.millis, now / granularity.millis,
+                        line.productId(), sign * line.quantity());
+                for (Tally tally : tallies.values()) {
+                    if (tally.window.granularity == granularity && time / granularity.millis > tally.expiredThrough) {
+                        tally.add(line.productId(), applied);
+                    }
+                }
+            }
+        }
+        if (publish) {
+            publish();
+        }
+    }
+
+    /**
+     * Adds to the bucket and returns what was actually added: nothing when the bucket is gone
+     * already, and never more than the bucket holds when taking back.
+     */
+    private int addToBucket(Granularity granularity, long number, long current, Long productId, int quantity) {
+        if (number <= current - granularity.slots) {
+            return 0;
+        }
+        Bucket[] ring = rings.get(granularity);
+        int slot = (int) (number % granularity.slots);
+        Bucket bucket = ring[slot];
+        if (bucket == null || bucket.number < number) {
+            if (quantity < 0) {
+                return 0;
+            }
+            // whatever the slot held left every window already
+            bucket = new Bucket(number);
+            ring[slot] = bucket;
+        } else if (bucket.number > number) {
+            return 0;
+        }
+        int before = bucket.quantities.getOrDefault(productId, 0);
+        int after = Math.max(0, before + quantity);
+        if (after == 0) {
+            bucket.quantities.remove(productId);
+        } else {
+            bucket.quantities.put(productId, after);
+        }
+        return after - before;
+    }
+
+    private void advance(long now) {
+        for (Tally tally : tallies.values()) {
+            Granularity granularity = tally.window.granularity;
+            Bucket[] ring = rings.get(granularity);
+            long target = now / granularity.millis - tally.window.span;
+            for (long number = Math.max(tally.expiredThrough + 1, target - granularity.slots + 1); number <= target; number++) {
+                Bucket bucket = ring[(int) (number % granularity.slots)];
+                if (bucket != null && bucket.number == number) {
+                    bucket.quantities.forEach((productId, quantity) -> tally.add(productId, -quantity));
+                }
+            }
+            tally.expiredThrough = Math.max(tally.expiredThrough, target);
+        }
+    }
+
+    private void publish() {
+        for (Tally tally : tallies.values()) {
+            if (tally.overallChanged) {
+                boards.put(new Board(tally.window, null), topOf(tally.overall));
+                tally.overallChanged = false;
+            }
+            for (Long categoryId : tally.changedCategories) {
+                TreeSet<Seller> ranking = tally.byCategory.get(categoryId);
+                if (ranking == null) {
+                    boards.remove(new Board(tally.window, categoryId));
+                } else {
+                    boards.put(new Board(tally.window, categoryId), topOf(ranking));
+                }
+            }
+            tally.changedCategories.clear();
+        }
+    }
+
+    private List<Seller> topOf(TreeSet<Seller> ranking) {
+        List<Seller> top = new ArrayList<>(Math.min(size, ranking.size()));
+        for (Seller seller : ranking) {
+            if (top.size() == size) {
+                break;
+            }
+            top.add(seller);
+        }
+        return List.copyOf(top);
+    }
+
+    private static long placedAt(Date placedAt) {
+        return placedAt == null ? System.currentTimeMillis() : placedAt.getTime();
+    }
+
+    private final class Tally {
+
+        private final Window window;
+        // newest bucket number already subtracted from the totals
+        private long expiredThrough;
+        private final Map<Long, Integer> totals = new HashMap<>();
+        private final TreeSet<Seller> overall = new TreeSet<>(MOST_SOLD_FIRST);
+        private final Map<Long, TreeSet<Seller>> byCategory = new HashMap<>();
+        private boolean overallChanged;
+        private final Set<Long> changedCategories = new HashSet<>();
+
+        Tally(Window window, long expiredThrough) {
+            this.window = window;
+            this.expiredThrough = expiredThrough;
+        }
+
+        int total(Long productId) {
+            return totals.getOrDefault(productId, 0);
+        }
+
+        void add(Long productId, int quantity) {
+            if (quantity == 0) {
+                return;
+            }
+            Long categoryId = categories.get(productId);
+            int before = total(productId);
+            int after = Math.max(0, before + quantity);
+            if (before > 0) {
+                unrank(new Seller(productId, before), categoryId);
+            }
+            if (after > 0) {
+                totals.put(productId, after);
+                rank(new Seller(productId, after), categoryId);
+            } else {
+                totals.remove(productId);
+            }
+        }
+
+        void recategorize(Long productId, Long from, Long to) {
+            int total = total(productId);
+            if (total > 0) {
+                unrank(new Seller(productId, total), from);
+                rank(new Seller(productId, total), to);
+            }
+        }
+
+        private void rank(Seller seller, Long categoryId) {
+            overall.add(seller);
+            overallChanged = true;
+            if (categoryId != null) {
+                byCategory.computeIfAbsent(categoryId, id -> new TreeSet<>(MOST_SOLD_FIRST)).add(seller);
+                changedCategories.add(categoryId);
+            }
+        }
+
+        private void unrank(Seller seller, Long categoryId) {
+            overall.remove(seller);
+            overallChanged = true;
+            if (categoryId != null) {
+                TreeSet<Seller> ranking = byCategory.get(categoryId);
+                if (ranking != null) {
+                    ranking.remove(seller);
+                    if (ranking.isEmpty()) {
+                        byCategory.remove(categoryId);
+                    }
+                }
+                changedCategories.add(categoryId);
+            }
+        }
+    }
+
+    private static final class Bucket {
+
+        private final long number;
+        private final Map<Long, Integer> quantities = new HashMap<>();
+
+        Bucket(long number) {
+            this.number = number;
+        }
+    }
+
+    private record Board(Window window, Long categoryId) {
+    }
+
+    public record Seller(Long productId, int quantity) {
+    }
+}
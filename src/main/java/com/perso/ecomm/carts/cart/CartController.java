@@ -1,9 +1,11 @@
 package com.perso.ecomm.carts.cart;
 
+import com.perso.ecomm.util.NdjsonResponseWriter;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -12,9 +14,11 @@ import java.util.List;
 public class CartController {
 
     private final  CartService cartService;
+    private final NdjsonResponseWriter ndjsonResponseWriter;
 
-    public CartController(CartService cartService) {
+    public CartController(CartService cartService, NdjsonResponseWriter ndjsonResponseWriter) {
         this.cartService = cartService;
+        this.ndjsonResponseWriter = ndjsonResponseWriter;
     }
 
     @GetMapping
@@ -22,6 +26,11 @@ public class CartController {
         return cartService.getAllCarts();
     }
 
+    @GetMapping(produces = NdjsonResponseWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllCarts() {
+        return ndjsonResponseWriter.stream(cartService::streamAllCarts);
+    }
+
     @GetMapping("/{cartId}")
     public ResponseEntity<?> getCartById(@PathVariable Long cartId) {
         try{
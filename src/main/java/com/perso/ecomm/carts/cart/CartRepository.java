@@ -1,13 +1,21 @@
 package com.perso.ecomm.carts.cart;
 
+import com.perso.ecomm.util.NdjsonResponseWriter;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
 
     Optional<Cart> findCartByUserId(Long user_id);
 
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = NdjsonResponseWriter.FETCH_SIZE))
+    @Query("SELECT c FROM Cart c LEFT JOIN FETCH c.user u LEFT JOIN FETCH u.role")
+    Stream<Cart> streamAllBy();
 }
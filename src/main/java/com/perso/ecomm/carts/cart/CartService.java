@@ -6,6 +6,7 @@ import jakarta.persistence.EntityNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 public class CartService {
@@ -22,6 +23,10 @@ public class CartService {
         return cartRepository.findAll();
     }
 
+    public Stream<Cart> streamAllCarts() {
+        return cartRepository.streamAllBy();
+    }
+
     public Cart getCartById(Long cartId) {
         return cartRepository.findById(cartId).orElseThrow(
                 () -> new EntityNotFoundException("No cart with User id : " +cartId)
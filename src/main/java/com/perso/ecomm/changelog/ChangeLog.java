@@ -0,0 +1,81 @@
+package com.perso.ecomm.changelog;
+
+import com.perso.ecomm.orders.order.OrderCancelledEvent;
+import com.perso.ecomm.orders.order.OrderPlacedEvent;
+import com.perso.ecomm.product.ProductChangedEvent;
+import com.perso.ecomm.productCategory.ProductCategoryChangedEvent;
+import com.perso.ecomm.user.UserChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Appends committed writes to the {@code change_log} table so other nodes can follow them.
+ * <p>
+ * Rows are written just before commit, inside the transaction that made the change, so an entry
+ * exists if and only if the change does. Only events published inside a transaction are logged:
+ * the {@link ChangeLogPoller} replays remote entries outside of one and must not echo them back.
+ */
+@Component
+public class ChangeLog {
+
+    private static final String INSERT = """
+            INSERT INTO change_log (entity_type, entity_id, deleted, origin_node, created_at)
+            VALUES (?, ?, ?, ?, NOW(6))""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId;
+
+    public ChangeLog(JdbcTemplate jdbcTemplate, @Value("${changelog.node-id:}") String nodeId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onProductChanged(ProductChangedEvent event) {
+        List<Object[]> rows = new ArrayList<>();
+        event.saved().forEach(product -> rows.add(row(ChangeLogEntry.EntityType.PRODUCT, product.getProductId(), false)));
+        event.deleted().forEach(productId -> rows.add(row(ChangeLogEntry.EntityType.PRODUCT, productId, true)));
+        append(rows);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onCategoryChanged(ProductCategoryChangedEvent event) {
+        append(List.<Object[]>of(row(ChangeLogEntry.EntityType.CATEGORY, event.categoryId(), false)));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onUserChanged(UserChangedEvent event) {
+        append(List.<Object[]>of(row(ChangeLogEntry.EntityType.USER, event.userId(), false)));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        append(List.<Object[]>of(row(ChangeLogEntry.EntityType.ORDER, event.orderId(), false)));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onOrderCancelled(OrderCancelledEvent event) {
+        append(List.<Object[]>of(row(ChangeLogEntry.EntityType.ORDER_CANCELLED, event.orderId(), false)));
+    }
+
+    private Object[] row(ChangeLogEntry.EntityType type, Long entityId, boolean deleted) {
+        return new Object[]{type.name(), entityId, deleted, nodeId};
+    }
+
+    private void append(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, rows);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.perso.ecomm.changelog;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.Date;
+
+@Entity
+@Table(name = "change_log", indexes = @Index(name = "idx_change_log_created_at", columnList = "created_at"))
+@Getter
+@NoArgsConstructor
+public class ChangeLogEntry {
+
+    public enum EntityType {
+        PRODUCT,
+        CATEGORY,
+        USER,
+        ORDER,
+        ORDER_CANCELLED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // a plain varchar rather than a MySQL enum, so new types need no schema change
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 16)
+    private EntityType entityType;
+
+    @Column(nullable = false)
+    private Long entityId;
+
+    private boolean deleted;
+
+    @Column(nullable = false, length = 64)
+    private String originNode;
+
+    @CreationTimestamp
+    private Date createdAt;
+}
@@ -0,0 +1,200 @@
+package com.perso.ecomm.changelog;
+
+import com.perso.ecomm.orders.order.OrderCancelledEvent;
+import com.perso.ecomm.orders.order.OrderPlacedEvent;
+import com.perso.ecomm.orders.orderItem.OrderItemRepository;
+import com.perso.ecomm.orders.orderItem.OrderLine;
+import com.perso.ecomm.product.Product;
+import com.perso.ecomm.product.ProductChangedEvent;
+import com.perso.ecomm.product.ProductRepository;
+import com.perso.ecomm.productCategory.ProductCategoryChangedEvent;
+import com.perso.ecomm.user.UserChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Follows the {@code change_log} table and replays other nodes' writes as local events, so
+ * caches and in-memory views of this node converge within {@code changelog.poll-interval-ms}.
+ * <p>
+ * The cursor is the highest entry id seen. Ids are handed out at insert time but become
+ * visible at commit, so a slow transaction can commit an id below the cursor: skipped ids are
+ * remembered as gaps and looked up again on every poll until they show up or
+ * {@code changelog.gap-timeout-ms} passes (a rolled back insert leaves a gap that never fills).
+ */
+@Slf4j
+@Component
+public class ChangeLogPoller {
+
+    private static final int MAX_GAPS = 10_000;
+
+    private final ChangeLogRepository changeLogRepository;
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ChangeLog changeLog;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int batchSize;
+    private final long gapTimeoutMillis;
+    private final long retentionMillis;
+
+    private volatile long cursor = -1;
+    // missing id -> first time it was noticed
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+
+    public ChangeLogPoller(ChangeLogRepository changeLogRepository,
+                           ProductRepository productRepository,
+                           OrderItemRepository orderItemRepository,
+                           ChangeLog changeLog,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${changelog.batch-size:1000}") int batchSize,
+                           @Value("${changelog.gap-timeout-ms:60000}") long gapTimeoutMillis,
+                           @Value("${changelog.retention-minutes:60}") long retentionMinutes) {
+        this.changeLogRepository = changeLogRepository;
+        this.productRepository = productRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.changeLog = changeLog;
+        this.eventPublisher = eventPublisher;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.batchSize = batchSize;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.retentionMillis = retentionMinutes * 60_000;
+    }
+
+    // in-memory views are loaded from the database at startup, only later entries matter
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        cursor = changeLogRepository.findMaxId();
+    }
+
+    @Scheduled(fixedDelayString = "${changelog.poll-interval-ms:1000}")
+    public void poll() {
+        if (cursor < 0) {
+            return;
+        }
+        try {
+            List<ChangeLogEntry> entries = new ArrayList<>(fillGaps());
+            List<ChangeLogEntry> batch;
+            do {
+                batch = changeLogRepository.findByIdGreaterThanOrderByIdAsc(cursor, Limit.of(batchSize));
+                advance(batch);
+                entries.addAll(batch);
+            } while (batch.size() == batchSize);
+            apply(entries);
+        } catch (RuntimeException e) {
+            log.warn("Change log poll failed, retrying on next tick", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${changelog.purge-interval-ms:600000}")
+    public void purge() {
+        changeLogRepository.deleteCreatedBefore(new Date(System.currentTimeMillis() - retentionMillis));
+    }
+
+    private List<ChangeLogEntry> fillGaps() {
+        if (gaps.isEmpty()) {
+            return List.of();
+        }
+        List<ChangeLogEntry> filled = changeLogRepository.findAllById(gaps.keySet());
+        filled.forEach(entry -> gaps.remove(entry.getId()));
+        long expired = System.currentTimeMillis() - gapTimeoutMillis;
+        gaps.values().removeIf(noticed -> noticed < expired);
+        return filled;
+    }
+
+    private void advance(List<ChangeLogEntry> batch) {
+        long now = System.currentTimeMillis();
+        for (ChangeLogEntry entry : batch) {
+            for (long missing = cursor + 1; missing < entry.getId(); missing++) {
+                gaps.put(missing, now);
+            }
+            cursor = entry.getId();
+        }
+        Iterator<Long> oldest = gaps.keySet().iterator();
+        while (gaps.size() > MAX_GAPS && oldest.hasNext()) {
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    private void apply(List<ChangeLogEntry> entries) {
+        // last entry per product wins
+        Map<Long, Boolean> products = new LinkedHashMap<>();
+        Set<Long> categories = new LinkedHashSet<>();
+        Set<Long> users = new LinkedHashSet<>();
+        Set<Long> placedOrders = new LinkedHashSet<>();
+        Set<Long> cancelledOrders = new LinkedHashSet<>();
+        for (ChangeLogEntry entry : entries) {
+            if (entry.getOriginNode().equals(changeLog.getNodeId())) {
+                continue;
+            }
+            switch (entry.getEntityType()) {
+                case PRODUCT -> {
+                    products.remove(entry.getEntityId());
+                    products.put(entry.getEntityId(), entry.isDeleted());
+                }
+                case CATEGORY -> categories.add(entry.getEntityId());
+                case USER -> users.add(entry.getEntityId());
+                case ORDER -> placedOrders.add(entry.getEntityId());
+                case ORDER_CANCELLED -> cancelledOrders.add(entry.getEntityId());
+            }
+        }
+        applyProducts(products);
+        categories.forEach(categoryId -> eventPublisher.publishEvent(new ProductCategoryChangedEvent(categoryId)));
+        users.forEach(userId -> eventPublisher.publishEvent(new UserChangedEvent(userId)));
+        applyOrders(placedOrders, OrderPlacedEvent::of);
+        applyOrders(cancelledOrders, OrderCancelledEvent::of);
+    }
+
+    private void applyProducts(Map<Long, Boolean> products) {
+        List<Long> ids = new ArrayList<>(products.keySet());
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            List<Long> savedIds = chunk.stream().filter(id -> !products.get(id)).toList();
+            List<Product> saved = savedIds.isEmpty()
+                    ? List.of()
+                    : readOnlyTransaction.execute(status -> productRepository.findAllById(savedIds));
+            Set<Long> found = new HashSet<>();
+            saved.forEach(product -> found.add(product.getProductId()));
+            // saved remotely but gone by now: deleted since
+            List<Long> deleted = chunk.stream().filter(id -> !found.contains(id)).toList();
+            eventPublisher.publishEvent(new ProductChangedEvent(saved, deleted));
+        }
+    }
+
+    private void applyOrders(Set<Long> orderIds, Function<List<OrderLine>, Object> toEvent) {
+        List<Long> ids = new ArrayList<>(orderIds);
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            Map<Long, List<OrderLine>> lines = new LinkedHashMap<>();
+            chunk.forEach(orderId -> lines.put(orderId, new ArrayList<>()));
+            for (OrderLine line : orderItemRepository.findLinesByOrderIdIn(chunk)) {
+                lines.get(line.getOrderId()).add(line);
+            }
+            // an order deleted since has no items left and nothing to replay
+            lines.values().stream()
+                    .filter(orderLines -> !orderLines.isEmpty())
+                    .forEach(orderLines -> eventPublisher.publishEvent(toEvent.apply(orderLines)));
+        }
+    }
+}
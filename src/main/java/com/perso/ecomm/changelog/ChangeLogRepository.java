@@ -0,0 +1,26 @@
+package com.perso.ecomm.changelog;
+
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+
+    List<ChangeLogEntry> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM ChangeLogEntry c")
+    long findMaxId();
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChangeLogEntry c WHERE c.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Date before);
+}
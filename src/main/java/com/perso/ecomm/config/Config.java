@@ -1,8 +1,11 @@
 package com.perso.ecomm.config;
 
+import com.perso.ecomm.image.ImageByteCache;
+import com.perso.ecomm.image.ImageResourceResolver;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -15,10 +18,22 @@ public class Config implements WebMvcConfigurer{
     @Value("${upload.path}")
     private String uploadPath;
 
+    private final ImageByteCache imageByteCache;
+
+    public Config(ImageByteCache imageByteCache) {
+        this.imageByteCache = imageByteCache;
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        // ?size= picks a rendition; the chain is not cached since the query string decides the file.
+        // Revalidated by default, content-addressed urls are immutable (see ImageResourceResolver)
         registry.addResourceHandler("/images/**")
-                .addResourceLocations("file:" + uploadPath + "/");
+                .addResourceLocations("file:" + uploadPath + "/")
+                .setCacheControl(CacheControl.noCache())
+                .setEtagGenerator(ImageResourceResolver::etagOf)
+                .resourceChain(false)
+                .addResolver(new ImageResourceResolver(imageByteCache));
     }
 
 
@@ -0,0 +1,107 @@
+package com.perso.ecomm.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks at startup that the hot repository queries are planned against an index.
+ * <p>
+ * Each query below is the SQL a repository method issues, with representative parameters. It is
+ * run through {@code EXPLAIN} on the live schema, and any table access of type {@code ALL} over
+ * more than {@code schema.plan-check.min-rows} estimated rows is reported. Small tables are left
+ * alone because MySQL rightly prefers a scan there, indexed or not. The index each query relies on
+ * must also exist, which catches schemas that were not created by {@code ddl-auto}.
+ * <p>
+ * {@code schema.plan-check.mode} is {@code warn} (log), {@code fail} (refuse to start) or {@code off}.
+ */
+@Slf4j
+@Component
+public class QueryPlanVerifier {
+
+    private static final List<HotQuery> HOT_QUERIES = List.of(
+            new HotQuery("ProductRepository.findLatestByCreationDateDesc", "product", "idx_product_creation_date",
+                    "SELECT product_id FROM product ORDER BY creation_date DESC LIMIT 10"),
+            new HotQuery("ProductRepository.findHotDeals", "product", "idx_product_discount_percent",
+                    "SELECT product_id FROM product WHERE discount_percent > 45"
+                            + " ORDER BY discount_percent DESC, product_id DESC LIMIT 20"),
+            new HotQuery("ProductRepository.findSummariesByCategory", "product", "idx_product_category_product_id",
+                    "SELECT product_id FROM product WHERE category_id = 1 ORDER BY product_id LIMIT 20"),
+            new HotQuery("ProductRepository.findSummariesByCategory (price)", "product", "idx_product_category_price",
+                    "SELECT product_id FROM product WHERE category_id = 1 ORDER BY price_after_discount LIMIT 20"),
+            new HotQuery("ProductRepository.countByCategory", "product", "idx_product_category_product_id",
+                    "SELECT COUNT(product_id) FROM product WHERE category_id = 1"),
+            new HotQuery("OrderRepository.findAllBy (orderDate)", "orders", "idx_orders_order_date",
+                    "SELECT order_id FROM orders ORDER BY order_date DESC LIMIT 20"),
+            new HotQuery("OrderRepository.findAllBy (status, orderDate)", "orders", "idx_orders_status_order_date",
+                    "SELECT order_id FROM orders WHERE status = 'PENDING' ORDER BY order_date DESC LIMIT 20"),
+            new HotQuery("Review lookups by product", "review", "idx_review_product_date",
+                    "SELECT review_id FROM review WHERE product_id = 1 ORDER BY review_date DESC LIMIT 20"),
+            new HotQuery("ChangeLogRepository.findByIdGreaterThanOrderByIdAsc", "change_log", "PRIMARY",
+                    "SELECT id FROM change_log WHERE id > 0 ORDER BY id LIMIT 1000")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String mode;
+    private final long minRows;
+
+    public QueryPlanVerifier(JdbcTemplate jdbcTemplate,
+                             @Value("${schema.plan-check.mode:warn}") String mode,
+                             @Value("${schema.plan-check.min-rows:1000}") long minRows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mode = mode;
+        this.minRows = minRows;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verify() {
+        if (mode.equalsIgnoreCase("off")) {
+            return;
+        }
+        List<String> problems = new ArrayList<>();
+        for (HotQuery query : HOT_QUERIES) {
+            try {
+                check(query, problems);
+            } catch (DataAccessException e) {
+                log.warn("Could not check the plan of {}: {}", query.name(), e.getMessage());
+            }
+        }
+        if (problems.isEmpty()) {
+            log.info("All {} hot queries are planned against an index", HOT_QUERIES.size());
+            return;
+        }
+        problems.forEach(problem -> log.warn("Query plan check: {}", problem));
+        if (mode.equalsIgnoreCase("fail")) {
+            throw new IllegalStateException("Hot queries would scan whole tables: " + problems);
+        }
+    }
+
+    private void check(HotQuery query, List<String> problems) {
+        Integer indexes = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics"
+                        + " WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
+                Integer.class, query.table(), query.index());
+        if (indexes == null || indexes == 0) {
+            problems.add(query.name() + ": index " + query.index() + " is missing on " + query.table());
+        }
+        for (Map<String, Object> row : jdbcTemplate.queryForList("EXPLAIN " + query.sql())) {
+            Object rows = row.get("rows");
+            long estimated = rows instanceof Number number ? number.longValue() : 0;
+            if ("ALL".equals(row.get("type")) && estimated >= minRows) {
+                problems.add(query.name() + ": full scan of " + row.get("table")
+                        + " (~" + estimated + " rows), possible keys " + row.get("possible_keys"));
+            }
+        }
+    }
+
+    private record HotQuery(String name, String table, String index, String sql) {
+    }
+}
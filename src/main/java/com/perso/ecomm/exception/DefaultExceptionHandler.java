@@ -13,6 +13,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
 import java.time.LocalDateTime;
@@ -83,6 +84,18 @@ public class DefaultExceptionHandler {
         return buildResponseEntity(request, e.getMessage(), HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<ApiError> handleException(MaxUploadSizeExceededException e, HttpServletRequest request) {
+        logger.error("Upload too large: {}", e.getMessage());
+        return buildResponseEntity(request, "The uploaded file is too large", HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ApiError> handleException(ServiceBusyException e, HttpServletRequest request) {
+        logger.warn("Service busy: {}", e.getMessage());
+        return buildResponseEntity(request, e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(MethodArgumentTypeMismatchException.class)
     public ResponseEntity<ApiError> handleMethodArgumentTypeMismatch(MethodArgumentTypeMismatchException e, HttpServletRequest request) {
         logger.error("Method argument type mismatch: {}", e.getMessage());
@@ -0,0 +1,323 @@
+package com.perso.ecomm.image;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contents of the most requested image files, kept off the heap.
+ * <p>
+ * The cache is one direct buffer of {@code image.cache.max-bytes}, allocated at startup and cut
+ * into fixed blocks. A cached file occupies as many blocks as it needs; evicting it returns them
+ * to a free list, so the cached bytes are never seen by the garbage collector and memory use
+ * never goes past the budget. Files over {@code image.cache.max-entry-bytes} are not cached and
+ * are sent from disk as before. Eviction is least recently used.
+ * <p>
+ * A reader pins the file while it copies it out, so an eviction in the meantime only frees its
+ * blocks once the reader is done. Each lookup passes the size and modification time the caller
+ * just read, and an entry that does not match them is reloaded; stored and released images are
+ * also dropped explicitly.
+ */
+@Component
+public class ImageByteCache {
+
+    private static final int BLOCK_SIZE = 16 * 1024;
+
+    private final ByteBuffer slab;
+    private final long maxEntryBytes;
+    private final int[] freeBlocks;
+    private int freeCount;
+
+    // access ordered, guarded by this
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ImageByteCache(@Value("${image.cache.max-bytes:67108864}") long maxBytes,
+                          @Value("${image.cache.max-entry-bytes:1048576}") long maxEntryBytes) {
+        int blockCount = (int) (Math.min(Math.max(maxBytes, 0), Integer.MAX_VALUE) / BLOCK_SIZE);
+        this.slab = ByteBuffer.allocateDirect(blockCount * BLOCK_SIZE);
+        this.maxEntryBytes = Math.min(maxEntryBytes, (long) blockCount * BLOCK_SIZE);
+        this.freeBlocks = new int[blockCount];
+        for (int block = 0; block < blockCount; block++) {
+            freeBlocks[block] = blockCount - 1 - block;
+        }
+        this.freeCount = blockCount;
+    }
+
+    /**
+     * The cached contents of {@code file}, read from disk on a miss, or {@code null} when the file
+     * is not cacheable. {@code length} and {@code lastModified} are what the caller knows of the
+     * file on disk. The returned file must be closed.
+     */
+    public CachedFile open(Path file, long length, long lastModified) throws IOException {
+        if (length <= 0 || length > maxEntryBytes) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(file);
+            if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+                hits.increment();
+                entry.pins++;
+                return new CachedFile(entry);
+            }
+            evict(file);
+        }
+        misses.increment();
+        Entry loaded = load(file, length, lastModified);
+        if (loaded == null) {
+            return null;
+        }
+        synchronized (this) {
+            Entry concurrent = entries.get(file);
+            if (concurrent != null && concurrent.length == length && concurrent.lastModified == lastModified) {
+                free(loaded.blocks);
+                concurrent.pins++;
+                return new CachedFile(concurrent);
+            }
+            evict(file);
+            loaded.pins++;
+            entries.put(file, loaded);
+            residentBytes += loaded.length;
+            return new CachedFile(loaded);
+        }
+    }
+
+    public synchronized void invalidate(Path file) {
+        evict(file);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageStored(ImageStoredEvent event) {
+        invalidateWithRenditions(event.original());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageReleased(ImageReleasedEvent event) {
+        invalidateWithRenditions(event.image());
+    }
+
+    public synchronized Stats stats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return new Stats(hitCount, lookups - hitCount, lookups == 0 ? 0 : (double) hitCount / lookups,
+                evictions.sum(), entries.size(), residentBytes,
+                (long) (freeBlocks.length - freeCount) * BLOCK_SIZE, slab.capacity());
+    }
+
+    private void invalidateWithRenditions(Path original) {
+        invalidate(original);
+        for (ImageSize size : ImageSize.values()) {
+            invalidate(ImageRenditionService.renditionOf(original, size));
+        }
+    }
+
+    // the blocks are taken under the lock, the file is read into them outside of it
+    private Entry load(Path file, long length, long lastModified) throws IOException {
+        int[] blocks = allocate((int) ((length + BLOCK_SIZE - 1) / BLOCK_SIZE));
+        if (blocks == null) {
+            return null;
+        }
+        boolean loaded = false;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = 0;
+            for (int block : blocks) {
+                int size = (int) Math.min(BLOCK_SIZE, length - position);
+                ByteBuffer target = slab.slice(block * BLOCK_SIZE, size);
+                while (target.hasRemaining()) {
+                    if (channel.read(target, position + target.position()) < 0) {
+                        // shorter than announced, changed since the caller looked
+                        return null;
+                    }
+                }
+                position += size;
+            }
+            loaded = true;
+            return new Entry(blocks, length, lastModified);
+        } finally {
+            if (!loaded) {
+                free(blocks);
+            }
+        }
+    }
+
+    private synchronized int[] allocate(int count) {
+        Iterator<Map.Entry<Path, Entry>> eldest = entries.entrySet().iterator();
+        while (freeCount < count && eldest.hasNext()) {
+            Entry entry = eldest.next().getValue();
+            eldest.remove();
+            retire(entry);
+        }
+        if (freeCount < count) {
+            // what is left is pinned by readers; this file is sent from disk
+            return null;
+        }
+        int[] blocks = new int[count];
+        for (int i = 0; i < count; i++) {
+            blocks[i] = freeBlocks[--freeCount];
+        }
+        return blocks;
+    }
+
+    private void evict(Path file) {
+        Entry entry = entries.remove(file);
+        if (entry != null) {
+            retire(entry);
+        }
+    }
+
+    // an entry left the map; its blocks wait for its last reader
+    private void retire(Entry entry) {
+        entry.evicted = true;
+        residentBytes -= entry.length;
+        evictions.increment();
+        if (entry.pins == 0) {
+            free(entry.blocks);
+        }
+    }
+
+    private synchronized void free(int[] blocks) {
+        for (int block : blocks) {
+            freeBlocks[freeCount++] = block;
+        }
+    }
+
+    private synchronized void unpin(Entry entry) {
+        entry.pins--;
+        if (entry.pins == 0 && entry.evicted) {
+            free(entry.blocks);
+        }
+    }
+
+    private static final class Entry {
+
+        private final int[] blocks;
+        private final long length;
+        private final long lastModified;
+        // guarded by the cache
+        private int pins;
+        private boolean evicted;
+
+        Entry(int[] blocks, long length, long lastModified) {
+            this.blocks = blocks;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * A pinned cached file. Its blocks stay valid until it is closed.
+     */
+    public final class CachedFile implements Closeable {
+
+        private final Entry entry;
+        private boolean closed;
+
+        private CachedFile(Entry entry) {
+            this.entry = entry;
+        }
+
+        public long length() {
+            return entry.length;
+        }
+
+        public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            long end = position + count;
+            while (position < end) {
+                int offset = (int) (position % BLOCK_SIZE);
+                int size = (int) Math.min(BLOCK_SIZE - offset, end - position);
+                ByteBuffer source = slab.slice(entry.blocks[(int) (position / BLOCK_SIZE)] * BLOCK_SIZE + offset, size);
+                while (source.hasRemaining()) {
+                    target.write(source);
+                }
+                position += size;
+            }
+        }
+
+        /**
+         * The whole file as a stream; closing the stream closes this file.
+         */
+        public InputStream inputStream() {
+            return new InputStream() {
+                private long position;
+
+                @Override
+                public int read() {
+                    if (position >= entry.length) {
+                        return -1;
+                    }
+                    int block = entry.blocks[(int) (position / BLOCK_SIZE)];
+                    int value = slab.get(block * BLOCK_SIZE + (int) (position % BLOCK_SIZE)) & 0xff;
+                    position++;
+                    return value;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    if (length == 0) {
+                        return 0;
+                    }
+                    if (position >= entry.length) {
+                        return -1;
+                    }
+                    int inBlock = (int) (position % BLOCK_SIZE);
+                    int size = (int) Math.min(Math.min(length, BLOCK_SIZE - inBlock), entry.length - position);
+                    slab.get(entry.blocks[(int) (position / BLOCK_SIZE)] * BLOCK_SIZE + inBlock, buffer, offset, size);
+                    position += size;
+                    return size;
+                }
+
+                @Override
+                public long skip(long n) {
+                    long skipped = Math.max(0, Math.min(n, entry.length - position));
+                    position += skipped;
+                    return skipped;
+                }
+
+                @Override
+                public int available() {
+                    return (int) Math.min(Integer.MAX_VALUE, entry.length - position);
+                }
+
+                @Override
+                public void close() {
+                    CachedFile.this.close();
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                unpin(entry);
+            }
+        }
+    }
+
+    public record Stats(long hits,
+                        long misses,
+                        double hitRate,
+                        long evictions,
+                        int entries,
+                        long residentBytes,
+                        long allocatedBytes,
+                        long capacityBytes) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.perso.ecomm.image;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping(path = "image")
+public class ImageController {
+
+    private final ImageRenditionService imageRenditionService;
+    private final ImageFingerprinter imageFingerprinter;
+    private final ImageByteCache imageByteCache;
+    private final ImageStore imageStore;
+
+    public ImageController(ImageRenditionService imageRenditionService, ImageFingerprinter imageFingerprinter, ImageByteCache imageByteCache, ImageStore imageStore) {
+        this.imageRenditionService = imageRenditionService;
+        this.imageFingerprinter = imageFingerprinter;
+        this.imageByteCache = imageByteCache;
+        this.imageStore = imageStore;
+    }
+
+    // render again the thumbnails, medium and large sizes of every stored image
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/renditions/rebuild")
+    public ResponseEntity<ImageRenditionService.Stats> rebuildRenditions() throws IOException {
+        imageRenditionService.rebuildAll();
+        return ResponseEntity.accepted().body(imageRenditionService.stats());
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/renditions/stats")
+    public ImageRenditionService.Stats getRenditionStats() {
+        return imageRenditionService.stats();
+    }
+
+    // move products and users off image names that predate content addressing
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/fingerprint")
+    public ImageFingerprinter.Result fingerprintImages() {
+        return imageFingerprinter.fingerprintLegacyImages();
+    }
+
+    // hit rate and off-heap bytes of the image byte cache
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/cache/stats")
+    public ImageByteCache.Stats getCacheStats() {
+        return imageByteCache.stats();
+    }
+
+    // uploads written, refused because the queue was full, and in flight
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/upload/stats")
+    public ImageStore.Stats getUploadStats() {
+        return imageStore.stats();
+    }
+}
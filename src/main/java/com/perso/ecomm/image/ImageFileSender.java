@@ -0,0 +1,151 @@
+package com.perso.ecomm.image;
+
+import com.perso.ecomm.exception.ResourceNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+/**
+ * Writes an image file to the response without loading it on the heap.
+ * <p>
+ * On Tomcat the file is handed to the connector, which sends it with {@code sendfile} straight
+ * from the page cache to the socket. Files under {@code image.sendfile-min-bytes}, and every file
+ * on other containers, are sent from the {@link ImageByteCache} when they fit in it and copied
+ * from a {@link FileChannel} otherwise. Single byte ranges, {@code If-Range} and the usual
+ * conditional headers are honoured; a request for several ranges gets the whole file.
+ */
+@Component
+public class ImageFileSender {
+
+    // request attributes of Tomcat's sendfile support
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final long sendfileMinBytes;
+    private final ImageByteCache imageByteCache;
+
+    public ImageFileSender(@Value("${image.sendfile-min-bytes:49152}") long sendfileMinBytes,
+                           ImageByteCache imageByteCache) {
+        this.sendfileMinBytes = sendfileMinBytes;
+        this.imageByteCache = imageByteCache;
+    }
+
+    public void send(Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Image not found");
+        }
+        if (!attributes.isRegularFile()) {
+            throw new ResourceNotFoundException("Image not found");
+        }
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && rangeApplies(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                // a malformed Range is ignored, not an error
+                ranges = List.of();
+            }
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    start = length;
+                }
+                // HttpRange leaves a first position past the end to the caller
+                if (start >= length || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentType(MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(count);
+        if (count <= 0 || HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+        if (count >= sendfileMinBytes && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (ImageByteCache.CachedFile cached = imageByteCache.open(file, length, lastModified)) {
+            if (cached != null) {
+                cached.transferTo(start, count, Channels.newChannel(response.getOutputStream()));
+                return;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long sent = channel.transferTo(position, end + 1 - position, out);
+                if (sent <= 0) {
+                    throw new IOException(file + " was truncated while being sent");
+                }
+                position += sent;
+            }
+        }
+    }
+
+    /**
+     * A range is only served when {@code If-Range} is absent or still matches the file; otherwise
+     * the client's partial copy is stale and it gets the whole file.
+     */
+    private static boolean rangeApplies(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
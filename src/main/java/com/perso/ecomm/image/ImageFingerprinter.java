@@ -0,0 +1,114 @@
+package com.perso.ecomm.image;
+
+import com.perso.ecomm.product.Product;
+import com.perso.ecomm.product.ProductChangedEvent;
+import com.perso.ecomm.product.ProductRepository;
+import com.perso.ecomm.user.User;
+import com.perso.ecomm.user.UserChangedEvent;
+import com.perso.ecomm.user.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Points products and users still using an image stored before content addressing at the
+ * content-addressed copy of that image, so their urls become cacheable forever. The old files
+ * stay where they are and their urls keep resolving. Rows holding another spelling of a
+ * content-addressed url ({@code http://host/images/...}) are rewritten to the canonical one, the
+ * only spelling {@link ImageStore} counts before reclaiming a file.
+ */
+@Slf4j
+@Service
+public class ImageFingerprinter {
+
+    private final ImageStore imageStore;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    public ImageFingerprinter(ImageStore imageStore,
+                              ProductRepository productRepository,
+                              UserRepository userRepository,
+                              ApplicationEventPublisher eventPublisher,
+                              PlatformTransactionManager transactionManager) {
+        this.imageStore = imageStore;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public Result fingerprintLegacyImages() {
+        Set<String> imageUrls = new LinkedHashSet<>();
+        productRepository.countByImageUrl().forEach(count -> imageUrls.add(count.getImageUrl()));
+        userRepository.countByImageUrl().forEach(count -> imageUrls.add(count.getImageUrl()));
+
+        int files = 0;
+        int products = 0;
+        int users = 0;
+        int missing = 0;
+        for (String imageUrl : imageUrls) {
+            Optional<Path> legacy = imageStore.pathOf(imageUrl);
+            if (legacy.isPresent() && ImageStore.isContentAddressed(legacy.get().getFileName().toString())) {
+                String canonicalUrl = imageStore.urlOf(legacy.get());
+                if (!canonicalUrl.equals(imageUrl)) {
+                    int[] repointed = transactionTemplate.execute(status -> repoint(imageUrl, canonicalUrl));
+                    products += repointed[0];
+                    users += repointed[1];
+                }
+                continue;
+            }
+            if (legacy.isEmpty() || !Files.isRegularFile(legacy.get())) {
+                missing++;
+                continue;
+            }
+            Path fingerprinted;
+            try {
+                fingerprinted = imageStore.adopt(legacy.get());
+            } catch (IOException e) {
+                log.warn("Could not fingerprint {}: {}", legacy.get(), e.getMessage());
+                missing++;
+                continue;
+            }
+            String fingerprintedUrl = imageStore.urlOf(fingerprinted);
+            int[] repointed = transactionTemplate.execute(status -> repoint(imageUrl, fingerprintedUrl));
+            if (repointed[0] + repointed[1] == 0) {
+                // the rows moved on meanwhile, the copy is reclaimed unless something else uses it
+                imageStore.release(fingerprintedUrl);
+            }
+            files++;
+            products += repointed[0];
+            users += repointed[1];
+        }
+        log.info("Fingerprinted {} images: {} products, {} users, {} missing", files, products, users, missing);
+        return new Result(files, products, users, missing);
+    }
+
+    private int[] repoint(String from, String to) {
+        List<Product> products = productRepository.findByImageUrl(from);
+        products.forEach(product -> product.setImageUrl(to));
+        if (!products.isEmpty()) {
+            eventPublisher.publishEvent(ProductChangedEvent.saved(products));
+        }
+        List<User> users = userRepository.findByImageUrl(from);
+        for (User user : users) {
+            user.setImageUrl(to);
+            eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
+        }
+        return new int[]{products.size(), users.size()};
+    }
+
+    public record Result(int files, int products, int users, int missing) {
+    }
+}
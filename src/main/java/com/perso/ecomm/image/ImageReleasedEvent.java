@@ -0,0 +1,10 @@
+package com.perso.ecomm.image;
+
+import java.nio.file.Path;
+
+/**
+ * Published when a product or user stops pointing at a stored image, so the file is reclaimed
+ * after commit once nothing references it.
+ */
+public record ImageReleasedEvent(Path image) {
+}
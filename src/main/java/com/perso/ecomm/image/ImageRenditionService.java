@@ -0,0 +1,283 @@
+package com.perso.ecomm.image;
+
+import com.perso.ecomm.exception.RequestValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Renders the {@link ImageSize} renditions of uploaded images.
+ * <p>
+ * Uploads are rendered after commit on a small pool ({@code image.rendition.threads}) behind a
+ * bounded queue ({@code image.rendition.queue-capacity}); when the queue is full the upload is
+ * skipped and counted, and the original keeps being served until a rebuild renders it. Each
+ * rendition is a JPEG at {@code image.rendition.quality}, scaled down in halving steps for a
+ * clean result and written through a temporary file, so a reader never sees half an image.
+ * Images over {@code image.rendition.max-pixels} are not decoded at all.
+ */
+@Slf4j
+@Service
+public class ImageRenditionService {
+
+    private static final String RENDITION_EXTENSION = ".jpg";
+
+    private final List<Path> imageDirectories;
+    private final float quality;
+    private final long maxPixels;
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+    private final ImageByteCache imageByteCache;
+
+    private final LongAdder rendered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicInteger rebuildRemaining = new AtomicInteger();
+
+    public ImageRenditionService(@Value("${upload.path}") String uploadPath,
+                                 @Value("${upload.user-path}") String userImagePath,
+                                 @Value("${image.rendition.quality:0.8}") float quality,
+                                 @Value("${image.rendition.max-pixels:40000000}") long maxPixels,
+                                 @Value("${image.rendition.threads:2}") int threads,
+                                 @Value("${image.rendition.queue-capacity:1000}") int queueCapacity,
+                                 ImageByteCache imageByteCache) {
+        Set<Path> directories = new LinkedHashSet<>();
+        directories.add(Paths.get(uploadPath.trim()).toAbsolutePath().normalize());
+        directories.add(Paths.get(userImagePath.trim()).toAbsolutePath().normalize());
+        this.imageDirectories = List.copyOf(directories);
+        this.quality = Math.max(0.1f, Math.min(quality, 0.95f));
+        this.maxPixels = maxPixels;
+        this.threads = threads;
+        this.imageByteCache = imageByteCache;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-rendition-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageStored(ImageStoredEvent event) {
+        try {
+            executor.execute(() -> render(event.original()));
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+            log.warn("Rendition queue full, {} is served in its original size until the next rebuild", event.original());
+        }
+    }
+
+    /**
+     * Re-renders every image of the upload directories in the background and returns how many
+     * were found. The rebuild keeps at most one image per worker in flight, so the queue stays
+     * free for new uploads.
+     */
+    public int rebuildAll() throws IOException {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new RequestValidationException("A rendition rebuild is already running");
+        }
+        List<Path> originals;
+        try {
+            originals = listOriginals();
+        } catch (IOException | RuntimeException e) {
+            rebuilding.set(false);
+            throw e;
+        }
+        rebuildRemaining.set(originals.size());
+        Thread rebuild = new Thread(() -> {
+            Semaphore inFlight = new Semaphore(threads);
+            try {
+                for (Path original : originals) {
+                    inFlight.acquireUninterruptibly();
+                    Runnable task = () -> {
+                        try {
+                            render(original);
+                        } finally {
+                            rebuildRemaining.decrementAndGet();
+                            inFlight.release();
+                        }
+                    };
+                    try {
+                        executor.execute(task);
+                    } catch (RejectedExecutionException e) {
+                        // uploads filled the queue, render here rather than skip
+                        task.run();
+                    }
+                }
+                inFlight.acquireUninterruptibly(threads);
+            } finally {
+                rebuilding.set(false);
+            }
+            log.info("Rendition rebuild done: {} images", originals.size());
+        }, "image-rendition-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+        return originals.size();
+    }
+
+    public Stats stats() {
+        return new Stats(rendered.sum(), failed.sum(), dropped.sum(), executor.getQueue().size(),
+                rebuilding.get(), rebuildRemaining.get());
+    }
+
+    public static Path renditionOf(Path original, ImageSize size) {
+        String fileName = original.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return original.resolveSibling(size.directory()).resolve(baseName + RENDITION_EXTENSION);
+    }
+
+    public static void deleteRenditions(Path original) {
+        for (ImageSize size : ImageSize.values()) {
+            try {
+                Files.deleteIfExists(renditionOf(original, size));
+            } catch (IOException e) {
+                log.warn("Could not delete {} rendition of {}", size.directory(), original);
+            }
+        }
+    }
+
+    void render(Path original) {
+        try {
+            BufferedImage source = read(original);
+            if (source == null) {
+                failed.increment();
+                return;
+            }
+            for (ImageSize size : ImageSize.values()) {
+                write(scale(source, size.getMaxDimension()), renditionOf(original, size));
+            }
+            rendered.increment();
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            log.warn("Could not render {}: {}", original, e.getMessage());
+        }
+    }
+
+    private BufferedImage read(Path original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                log.warn("{} is not an image format we can read", original);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.warn("{} has {} pixels, over the {} allowed", original, pixels, maxPixels);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Fits the image in a {@code maxDimension} square, never enlarging it, on an opaque RGB
+     * canvas since JPEG has no transparency.
+     */
+    private static BufferedImage scale(BufferedImage source, int maxDimension) {
+        double ratio = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private void write(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temporary = Files.createTempFile(target.getParent(), ".rendition", ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try {
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temporary.toFile())) {
+                writer.setOutput(output);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+                writer.write(null, new IIOImage(image, null, null), param);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            imageByteCache.invalidate(target);
+        } finally {
+            writer.dispose();
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // originals only: renditions live in subdirectories of their original's directory
+    private List<Path> listOriginals() throws IOException {
+        List<Path> originals = new ArrayList<>();
+        for (Path directory : imageDirectories) {
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(Files::isRegularFile)
+                        .filter(file -> !file.getFileName().toString().startsWith("."))
+                        .forEach(originals::add);
+            }
+        }
+        return originals;
+    }
+
+    public record Stats(long rendered, long failed, long dropped, int queued, boolean rebuilding, int rebuildRemaining) {
+    }
+}
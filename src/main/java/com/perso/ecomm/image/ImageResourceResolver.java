@@ -0,0 +1,194 @@
+package com.perso.ecomm.image;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Resolves {@code /images/...} and sets how long the response may be cached.
+ * <p>
+ * {@code ?size=thumbnail|medium|large} is served from the matching rendition, and from the
+ * original when there is no such size or the rendition is not rendered yet.
+ * <p>
+ * A content-addressed url ({@link ImageStore}) names its bytes, so when it is served as asked
+ * for it is cached for a year as {@code immutable} and browsers and CDNs never come back for it.
+ * Every other response, including a rendition standing in for its original, is {@code no-cache}:
+ * it is revalidated with its ETag and answered with a 304 while unchanged.
+ */
+public class ImageResourceResolver extends AbstractResourceResolver {
+
+    private static final String IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable().getHeaderValue();
+    private static final String REVALIDATE = CacheControl.noCache().getHeaderValue();
+
+    private final ImageByteCache imageByteCache;
+
+    public ImageResourceResolver(ImageByteCache imageByteCache) {
+        this.imageByteCache = imageByteCache;
+    }
+
+    @Override
+    protected Resource resolveResourceInternal(HttpServletRequest request, String requestPath,
+                                               List<? extends Resource> locations, ResourceResolverChain chain) {
+        Optional<ImageSize> size = request == null
+                ? Optional.empty()
+                : Optional.ofNullable(request.getParameter("size")).flatMap(ImageSize::fromParameter);
+        Resource resolved = null;
+        if (size.isPresent()) {
+            try {
+                String renditionPath = ImageRenditionService.renditionOf(Paths.get(requestPath), size.get()).toString()
+                        .replace('\\', '/');
+                resolved = chain.resolveResource(request, renditionPath, locations);
+            } catch (InvalidPathException e) {
+                // left to the next resolver, which rejects it the usual way
+            }
+        }
+        boolean asRequested = resolved != null || size.isEmpty();
+        if (resolved == null) {
+            resolved = chain.resolveResource(request, requestPath, locations);
+        }
+        if (resolved == null) {
+            return null;
+        }
+        String fileName = requestPath.substring(requestPath.lastIndexOf('/') + 1);
+        boolean immutable = asRequested && ImageStore.isContentAddressed(fileName);
+        return new CachedImage(resolved, immutable ? IMMUTABLE : REVALIDATE, imageByteCache);
+    }
+
+    @Override
+    protected String resolveUrlPathInternal(String resourceUrlPath, List<? extends Resource> locations,
+                                            ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourceUrlPath, locations);
+    }
+
+    /**
+     * Strong ETag of a served image: the digest in the name of a content-addressed original, and
+     * size and modification time for anything else, renditions included.
+     */
+    public static String etagOf(Resource resource) {
+        try {
+            File file = resource.getFile();
+            String name = file.getName();
+            File parent = file.getParentFile();
+            boolean rendition = parent != null && ImageSize.fromParameter(parent.getName()).isPresent();
+            if (!rendition && ImageStore.isContentAddressed(name)) {
+                return "\"" + name.substring(0, name.indexOf('.')) + "\"";
+            }
+            return "\"" + Long.toHexString(file.length()) + "-" + Long.toHexString(file.lastModified()) + "\"";
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // the resolved file with its Cache-Control, which the handler copies onto the response, and
+    // its contents read from the byte cache
+    private static final class CachedImage extends AbstractResource implements HttpResource {
+
+        private final Resource resource;
+        private final String cacheControl;
+        private final ImageByteCache imageByteCache;
+
+        CachedImage(Resource resource, String cacheControl, ImageByteCache imageByteCache) {
+            this.resource = resource;
+            this.cacheControl = cacheControl;
+            this.imageByteCache = imageByteCache;
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            HttpHeaders headers = resource instanceof HttpResource httpResource
+                    ? new HttpHeaders(httpResource.getResponseHeaders())
+                    : new HttpHeaders();
+            headers.setCacheControl(cacheControl);
+            return headers;
+        }
+
+        @Override
+        public boolean exists() {
+            return resource.exists();
+        }
+
+        @Override
+        public boolean isReadable() {
+            return resource.isReadable();
+        }
+
+        @Override
+        public boolean isFile() {
+            return resource.isFile();
+        }
+
+        @Override
+        public URL getURL() throws IOException {
+            return resource.getURL();
+        }
+
+        @Override
+        public URI getURI() throws IOException {
+            return resource.getURI();
+        }
+
+        @Override
+        public File getFile() throws IOException {
+            return resource.getFile();
+        }
+
+        @Override
+        public ReadableByteChannel readableChannel() throws IOException {
+            return resource.readableChannel();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return resource.contentLength();
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return resource.lastModified();
+        }
+
+        @Override
+        public Resource createRelative(String relativePath) throws IOException {
+            return resource.createRelative(relativePath);
+        }
+
+        @Override
+        public String getFilename() {
+            return resource.getFilename();
+        }
+
+        @Override
+        public String getDescription() {
+            return resource.getDescription();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (resource.isFile()) {
+                File file = resource.getFile();
+                ImageByteCache.CachedFile cached = imageByteCache.open(file.toPath(), file.length(), file.lastModified());
+                if (cached != null) {
+                    return cached.inputStream();
+                }
+            }
+            return resource.getInputStream();
+        }
+    }
+}
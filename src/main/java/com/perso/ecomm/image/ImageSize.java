@@ -0,0 +1,38 @@
+package com.perso.ecomm.image;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Renditions kept next to every uploaded image, by the longest side they fit in. A rendition
+ * of {@code <dir>/<name>.<ext>} is stored as {@code <dir>/<size>/<name>.jpg} and served for
+ * the original's URL with {@code ?size=<size>}.
+ */
+public enum ImageSize {
+    THUMBNAIL(160),
+    MEDIUM(480),
+    LARGE(1200);
+
+    private final int maxDimension;
+
+    ImageSize(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    public String directory() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static Optional<ImageSize> fromParameter(String size) {
+        for (ImageSize candidate : values()) {
+            if (candidate.directory().equalsIgnoreCase(size)) {
+                return Optional.of(candidate);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,397 @@
+package com.perso.ecomm.image;
+
+import com.perso.ecomm.exception.RequestValidationException;
+import com.perso.ecomm.exception.ServiceBusyException;
+import com.perso.ecomm.product.ProductRepository;
+import com.perso.ecomm.user.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed storage of uploaded images.
+ * <p>
+ * An upload is stored as {@code <sha-256>.<extension>} in its directory. The upload is read once:
+ * the digest is computed while it is streamed to a temporary file, which is renamed into place,
+ * or discarded when the picture is already stored, so every product or user uploading it shares
+ * the one file.
+ * <p>
+ * Rows point at a content-addressed file by its canonical url, {@code /images/<path>}, see
+ * {@link #urlOf} and {@link #canonicalUrl}. Once the commit that stops pointing at a file has gone
+ * through, the {@code Product.imageUrl} and {@code User.imageUrl} columns still holding that url
+ * are counted on their index in the database, which every node shares; an unreferenced
+ * content-addressed file is deleted with its renditions. Files named otherwise (earlier uploads,
+ * the default user image) are never deleted here.
+ * <p>
+ * Uploads are written off the request thread, on a small pool ({@code image.upload.threads})
+ * behind a bounded queue ({@code image.upload.queue-capacity}); when the queue is full the upload
+ * is refused rather than left waiting, and an upload not written by {@code image.upload.timeout-ms}
+ * is dropped before it is recorded. The type is taken from the first bytes of the file, not
+ * from what the client claims, and the file is synced to disk before it is renamed into place.
+ * Only then is the caller's transaction run to record it.
+ */
+@Slf4j
+@Component
+public class ImageStore {
+
+    private static final String IMAGES_PREFIX = "/images/";
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]+");
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+    private static final int HEADER_BYTES = 12;
+
+    private final Path imagesDirectory;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ThreadPoolExecutor executor;
+
+    private final long timeoutMillis;
+    private final long reclaimGraceMillis;
+
+    // released while in their grace period, guarded by this
+    private final Set<Path> pendingReclaims = new HashSet<>();
+
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public ImageStore(@Value("${upload.path}") String uploadPath,
+                      @Value("${image.upload.threads:2}") int threads,
+                      @Value("${image.upload.queue-capacity:32}") int queueCapacity,
+                      @Value("${image.upload.timeout-ms:45000}") long timeoutMillis,
+                      @Value("${image.reclaim.grace-ms:600000}") long reclaimGraceMillis,
+                      ProductRepository productRepository,
+                      UserRepository userRepository,
+                      ApplicationEventPublisher eventPublisher) {
+        this.imagesDirectory = Paths.get(uploadPath.trim()).toAbsolutePath().normalize();
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.reclaimGraceMillis = reclaimGraceMillis;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-upload-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Stores {@code image} in {@code directory} on the upload pool, unless identical bytes are
+     * already there, and once the file is durable passes it to {@code record}, which is expected
+     * to commit the row pointing at it. If {@code record} fails the file is reclaimed unless
+     * other rows point at it. The future completes with what {@code record} returned, or with
+     * the exception that stopped the upload.
+     */
+    public <T> CompletableFuture<T> store(String directory, MultipartFile image, Function<Path, T> record) {
+        if (image == null || image.isEmpty()) {
+            throw new RequestValidationException("Image file is required");
+        }
+        Path targetDirectory = Paths.get(directory.trim()).toAbsolutePath().normalize();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            executor.execute(() -> {
+                Path target;
+                try {
+                    checkDeadline(deadline);
+                    target = write(targetDirectory, image, header -> sniffExtension(header).orElseThrow(() ->
+                            new RequestValidationException("Only JPEG, PNG, GIF and WebP images are allowed")));
+                } catch (IOException | RuntimeException e) {
+                    failed.increment();
+                    result.completeExceptionally(e);
+                    return;
+                }
+                stored.increment();
+                try {
+                    checkDeadline(deadline);
+                    result.complete(record.apply(target));
+                } catch (RuntimeException e) {
+                    reclaim(target);
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceBusyException("Too many uploads in progress, try again later");
+        }
+        return result;
+    }
+
+    /**
+     * An upload still queued or writing past {@code image.upload.timeout-ms} is dropped before
+     * anything is recorded: the request would otherwise time out while the row still gets
+     * committed behind the client's back, and a retry would create a duplicate.
+     */
+    private void checkDeadline(long deadline) {
+        if (System.currentTimeMillis() > deadline) {
+            timedOut.increment();
+            throw new ServiceBusyException("The upload waited too long, try again later");
+        }
+    }
+
+    /**
+     * Content-addressed copy of an image stored under another name, which is left in place so
+     * its url keeps working.
+     */
+    public Path adopt(Path existing) throws IOException {
+        String extension = extensionOf(existing.getFileName().toString());
+        return write(existing.getParent(), new FileSystemResource(existing), header -> extension);
+    }
+
+    /**
+     * Reclaims the image behind {@code imageUrl} once the current transaction commits, if no
+     * row points at it anymore.
+     */
+    public void release(String imageUrl) {
+        pathOf(imageUrl).ifPresent(path -> eventPublisher.publishEvent(new ImageReleasedEvent(path)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageReleased(ImageReleasedEvent event) {
+        reclaim(event.image());
+    }
+
+    // files still in their grace period when released are looked at again here
+    @Scheduled(fixedDelayString = "${image.reclaim.interval-ms:60000}")
+    public void reclaimPending() {
+        List<Path> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(pendingReclaims);
+            pendingReclaims.clear();
+        }
+        pending.forEach(this::reclaim);
+    }
+
+    /**
+     * The file behind an image url, {@code /images/<file>} or {@code http://host/images/<file>};
+     * empty when the url resolves outside of {@code upload.path}.
+     */
+    public Optional<Path> pathOf(String imageUrl) {
+        if (imageUrl == null || imageUrl.isBlank()) {
+            return Optional.empty();
+        }
+        int prefix = imageUrl.indexOf(IMAGES_PREFIX);
+        String relative = prefix >= 0
+                ? imageUrl.substring(prefix + IMAGES_PREFIX.length())
+                : imageUrl.substring(imageUrl.lastIndexOf('/') + 1);
+        try {
+            Path path = imagesDirectory.resolve(relative).normalize();
+            return path.startsWith(imagesDirectory) && !path.equals(imagesDirectory)
+                    ? Optional.of(path)
+                    : Optional.empty();
+        } catch (InvalidPathException e) {
+            return Optional.empty();
+        }
+    }
+
+    // the canonical url of a stored image, the only spelling rows hold for content-addressed files
+    public String urlOf(Path image) {
+        return IMAGES_PREFIX + imagesDirectory.relativize(image).toString().replace('\\', '/');
+    }
+
+    /**
+     * {@code imageUrl} in its canonical form when it points at a content-addressed file, so the
+     * reference counts find it; any other url is returned as given.
+     */
+    public String canonicalUrl(String imageUrl) {
+        return pathOf(imageUrl)
+                .filter(path -> isContentAddressed(path.getFileName().toString()))
+                .map(this::urlOf)
+                .orElse(imageUrl);
+    }
+
+    public static boolean isContentAddressed(String fileName) {
+        return CONTENT_ADDRESSED.matcher(fileName).matches();
+    }
+
+    public Stats stats() {
+        return new Stats(stored.sum(), failed.sum(), rejected.sum(), timedOut.sum(),
+                executor.getActiveCount(), executor.getQueue().size());
+    }
+
+    /**
+     * Deletes a content-addressed file, with its renditions, when no product or user row points
+     * at it. The rows are counted in the shared database, since other nodes store and point at
+     * the same files. A file younger than {@code image.reclaim.grace-ms} is left for a later
+     * sweep: another node may have stored or reused it for a row it has not committed yet.
+     */
+    private void reclaim(Path path) {
+        if (!isContentAddressed(path.getFileName().toString())) {
+            // earlier uploads and the default image may be shared under any name
+            return;
+        }
+        String imageUrl = urlOf(path);
+        try {
+            if (productRepository.countByImageUrl(imageUrl) + userRepository.countByImageUrl(imageUrl) > 0) {
+                return;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not count references to {}, keeping it for now: {}", path, e.getMessage());
+            synchronized (this) {
+                pendingReclaims.add(path);
+            }
+            return;
+        }
+        synchronized (this) {
+            try {
+                if (!Files.exists(path)) {
+                    return;
+                }
+                if (System.currentTimeMillis() - Files.getLastModifiedTime(path).toMillis() < reclaimGraceMillis) {
+                    pendingReclaims.add(path);
+                    return;
+                }
+                Files.delete(path);
+            } catch (IOException e) {
+                log.warn("Could not delete unreferenced image {}", path);
+                return;
+            }
+            ImageRenditionService.deleteRenditions(path);
+        }
+    }
+
+    /**
+     * Writes {@code source} as {@code <digest>.<extension>} in {@code directory} unless that file
+     * exists, reading it once. The extension is chosen from the first bytes before anything is
+     * written; the rest is streamed to a synced temporary file while it is digested, so neither a
+     * reader nor a committed row ever sees a partial image. A duplicate discards the temporary
+     * file and only renews the stored one's modification time, so a concurrent {@link #reclaim}
+     * leaves it alone; the lock only covers the rename.
+     */
+    private Path write(Path directory, InputStreamSource source, Function<byte[], String> extensionOf) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        Path temporary = null;
+        try (InputStream input = new DigestInputStream(source.getInputStream(), digest)) {
+            byte[] header = input.readNBytes(HEADER_BYTES);
+            String extension = extensionOf.apply(header);
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, ".upload", ".tmp");
+            try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream stream = Channels.newOutputStream(output);
+                stream.write(header);
+                input.transferTo(stream);
+                output.force(true);
+            }
+            Path target = directory.resolve(HexFormat.of().formatHex(digest.digest()) + "." + extension);
+            boolean created;
+            synchronized (this) {
+                created = !Files.exists(target);
+                if (created) {
+                    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+                }
+            }
+            if (created) {
+                syncDirectory(directory);
+                eventPublisher.publishEvent(new ImageStoredEvent(target));
+            } else {
+                log.debug("{} is already stored", target.getFileName());
+            }
+            return target;
+        } finally {
+            if (temporary != null) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    // the signatures of the formats we accept and can render
+    private static Optional<String> sniffExtension(byte[] header) {
+        if (startsWith(header, 0, 0xFF, 0xD8, 0xFF)) {
+            return Optional.of("jpg");
+        }
+        if (startsWith(header, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return Optional.of("png");
+        }
+        if (startsWith(header, 0, 'G', 'I', 'F', '8') && header.length > 5 && (header[4] == '7' || header[4] == '9') && header[5] == 'a') {
+            return Optional.of("gif");
+        }
+        if (startsWith(header, 0, 'R', 'I', 'F', 'F') && startsWith(header, 8, 'W', 'E', 'B', 'P')) {
+            return Optional.of("webp");
+        }
+        return Optional.empty();
+    }
+
+    private static boolean startsWith(byte[] header, int offset, int... signature) {
+        if (header.length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((header[offset + i] & 0xff) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String extensionOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        if (extension.equals("jpeg")) {
+            return "jpg";
+        }
+        return EXTENSION.matcher(extension).matches() ? extension : "img";
+    }
+
+    // makes the rename itself durable; not every platform can open a directory for that
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Could not sync directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    public record Stats(long stored, long failed, long rejected, long timedOut, int active, int queued) {
+    }
+}
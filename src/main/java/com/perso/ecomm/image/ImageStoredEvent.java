@@ -0,0 +1,9 @@
+package com.perso.ecomm.image;
+
+import java.nio.file.Path;
+
+/**
+ * Published once an uploaded image is on disk, so its renditions get rendered after commit.
+ */
+public record ImageStoredEvent(Path original) {
+}
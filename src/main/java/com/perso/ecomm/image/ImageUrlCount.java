@@ -0,0 +1,11 @@
+package com.perso.ecomm.image;
+
+/**
+ * How many rows of a table point at an image url.
+ */
+public interface ImageUrlCount {
+
+    String getImageUrl();
+
+    long getReferenceCount();
+}
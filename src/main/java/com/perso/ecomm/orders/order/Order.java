@@ -15,7 +15,10 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_order_date", columnList = "order_date"),
+        @Index(name = "idx_orders_status_order_date", columnList = "status, order_date")
+})
 @EqualsAndHashCode
 @ToString
 public class Order {
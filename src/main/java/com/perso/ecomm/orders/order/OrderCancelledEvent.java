@@ -0,0 +1,24 @@
+package com.perso.ecomm.orders.order;
+
+import com.perso.ecomm.orders.orderItem.OrderLine;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Published when an order moves to {@link OrderStatus#CANCELED}, so views that counted the
+ * {@link OrderPlacedEvent} can take it back.
+ */
+public record OrderCancelledEvent(Long orderId, Date placedAt, List<OrderPlacedEvent.Line> lines) {
+
+    public static OrderCancelledEvent of(Order order) {
+        return new OrderCancelledEvent(order.getOrderId(), order.getOrderDate(), OrderPlacedEvent.Line.of(order.getOrderItems()));
+    }
+
+    // lines of one order, as read back from the database
+    public static OrderCancelledEvent of(List<OrderLine> lines) {
+        OrderLine first = lines.get(0);
+        return new OrderCancelledEvent(first.getOrderId(), first.getOrderDate(),
+                lines.stream().map(OrderPlacedEvent.Line::of).toList());
+    }
+}
@@ -3,14 +3,19 @@ package com.perso.ecomm.orders.order;
 import com.perso.ecomm.playLoad.request.OrderRequest;
 import com.perso.ecomm.playLoad.response.OrderResponse;
 import com.perso.ecomm.product.Product;
+import com.perso.ecomm.playLoad.response.CursorPageResponse;
+import com.perso.ecomm.util.KeysetCursor;
+import com.perso.ecomm.util.NdjsonResponseWriter;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,9 +25,11 @@ import java.util.Optional;
 public class OrderController {
 
     private final OrderService orderService;
+    private final NdjsonResponseWriter ndjsonResponseWriter;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, NdjsonResponseWriter ndjsonResponseWriter) {
         this.orderService = orderService;
+        this.ndjsonResponseWriter = ndjsonResponseWriter;
     }
 
 
@@ -31,15 +38,34 @@ public class OrderController {
         return orderService.getAllOrders();
     }
 
+    @GetMapping(produces = NdjsonResponseWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllOrders() {
+        return ndjsonResponseWriter.stream(orderService::streamAllOrders);
+    }
+
     @GetMapping("/paginate")
     public Page<Order> paginateOrder(
             @RequestParam(name = "page", defaultValue = "0") int page,
             @RequestParam(name = "size", defaultValue = "5") int size,
             @RequestParam(name = "sortField", defaultValue = "orderId") String sortField,
-            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder) {
+            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder,
+            @RequestParam(name = "approximateTotal", defaultValue = "false") boolean approximateTotal) {
         Sort.Direction direction = sortOrder.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, direction, sortField);
-        return orderService.getSortedAndPagedData(pageable);
+        return orderService.getSortedAndPagedData(pageable, approximateTotal);
+    }
+
+    // get orders page after page, following the cursor of the previous page
+    @GetMapping("/paginate/cursor")
+    public CursorPageResponse<Order> scrollOrders(
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "size", defaultValue = "5") int size,
+            @RequestParam(name = "sortField", defaultValue = "orderId") String sortField,
+            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder) {
+        Sort.Direction direction = sortOrder.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        KeysetCursor.Cursor cursor = KeysetCursor.decode(after, Order.class, Sort.by(direction, sortField));
+        Window<Order> window = orderService.getScrolledData(cursor.position(), cursor.sort(), size);
+        return CursorPageResponse.of(window, cursor.sort());
     }
 
 
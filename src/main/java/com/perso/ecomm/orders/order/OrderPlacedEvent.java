@@ -0,0 +1,43 @@
+package com.perso.ecomm.orders.order;
+
+import com.perso.ecomm.orders.orderItem.OrderItem;
+import com.perso.ecomm.orders.orderItem.OrderLine;
+import com.perso.ecomm.productCategory.ProductCategory;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Published when an order is saved, for views built from order history. Like
+ * {@link com.perso.ecomm.product.ProductChangedEvent}, listeners only see it once committed.
+ */
+public record OrderPlacedEvent(Long orderId, Date placedAt, List<Line> lines) {
+
+    public static OrderPlacedEvent of(Order order) {
+        return new OrderPlacedEvent(order.getOrderId(), order.getOrderDate(), Line.of(order.getOrderItems()));
+    }
+
+    // lines of one order, as read back from the database
+    public static OrderPlacedEvent of(List<OrderLine> lines) {
+        OrderLine first = lines.get(0);
+        return new OrderPlacedEvent(first.getOrderId(), first.getOrderDate(), lines.stream().map(Line::of).toList());
+    }
+
+    public record Line(Long productId, Long categoryId, int quantity) {
+
+        static List<Line> of(List<OrderItem> items) {
+            return items.stream()
+                    .map(item -> {
+                        ProductCategory category = item.getProduct().getCategory();
+                        return new Line(item.getProduct().getProductId(),
+                                category == null ? null : category.getCategoryId(),
+                                item.getQuantity());
+                    })
+                    .toList();
+        }
+
+        public static Line of(OrderLine line) {
+            return new Line(line.getProductId(), line.getCategoryId(), line.getQuantity());
+        }
+    }
+}
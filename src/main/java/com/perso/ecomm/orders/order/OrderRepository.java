@@ -1,6 +1,20 @@
 package com.perso.ecomm.orders.order;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    Slice<Order> findAllBy(Pageable pageable);
+
+    Window<Order> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    @Query("SELECT COALESCE(MAX(o.orderId), 0) FROM Order o")
+    long findMaxOrderId();
 }
@@ -5,33 +5,69 @@ import com.perso.ecomm.orders.orderItem.OrderItem;
 import com.perso.ecomm.orders.orderItem.OrderItemService;
 import com.perso.ecomm.playLoad.request.OrderRequest;
 import com.perso.ecomm.product.Product;
+import com.perso.ecomm.product.ProductChangedEvent;
 import com.perso.ecomm.user.User;
 import com.perso.ecomm.user.UserRepository;
+import com.perso.ecomm.util.ApproximateCounter;
 import jakarta.transaction.Transactional;
+import org.hibernate.Hibernate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.support.WindowIterator;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 public class OrderService {
 
+    private static final int STREAM_PAGE_SIZE = 500;
+
     private final OrderRepository orderRepository;
     private final OrderItemService orderItemService;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ApproximateCounter approximateCounter;
 
 
-    public OrderService(OrderRepository orderRepository, OrderItemService orderItemService, UserRepository userRepository) {
+    public OrderService(OrderRepository orderRepository, OrderItemService orderItemService, UserRepository userRepository, ApplicationEventPublisher eventPublisher, ApproximateCounter approximateCounter) {
         this.orderRepository = orderRepository;
         this.orderItemService = orderItemService;
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.approximateCounter = approximateCounter;
     }
 
     public List<Order> getAllOrders() {
         return orderRepository.findAll();
     }
 
+    /**
+     * Orders are written with their items, which a row by row result set cannot load on the
+     * same connection, so they are read in keyset pages instead, each page with its items.
+     */
+    public Stream<Order> streamAllOrders() {
+        Sort sort = Sort.by("orderId");
+        WindowIterator<Order> orders = WindowIterator.of(position -> {
+            Window<Order> window = orderRepository.findAllBy(position, sort, Limit.of(STREAM_PAGE_SIZE));
+            // loaded now, since the writer may detach the page before all of it is written
+            window.forEach(order -> Hibernate.initialize(order.getOrderItems()));
+            return window;
+        }).startingAt(ScrollPosition.keyset());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(orders, Spliterator.ORDERED), false);
+    }
+
     public Order getOrderById(Long orderId) {
 
         return orderRepository.findById(orderId).orElseThrow(
@@ -69,6 +105,10 @@ public class OrderService {
         // Save the order
         orderRepository.save(order);
 
+        // Stock quantities changed, let product views refresh once the order is committed
+        eventPublisher.publishEvent(ProductChangedEvent.stockChanged(orderItems.stream().map(OrderItem::getProduct).toList()));
+        eventPublisher.publishEvent(OrderPlacedEvent.of(order));
+
         return order;
     }
 
@@ -79,7 +119,11 @@ public class OrderService {
         Order order = orderRepository.findById(orderId).orElseThrow(
                 () -> new ResourceNotFoundException("There's no order with id :" + orderId)
         );
+        OrderStatus previous = order.getStatus();
         order.setStatus(OrderStatus.valueOf(orderStatus.toUpperCase()));
+        if (order.getStatus() == OrderStatus.CANCELED && previous != OrderStatus.CANCELED) {
+            eventPublisher.publishEvent(OrderCancelledEvent.of(order));
+        }
         return order;
 
     }
@@ -94,7 +138,16 @@ public class OrderService {
     }
 
 
-    public Page<Order> getSortedAndPagedData(Pageable pageable) {
-        return orderRepository.findAll(pageable);
+    public Page<Order> getSortedAndPagedData(Pageable pageable, boolean approximateTotal) {
+        if (!approximateTotal) {
+            return orderRepository.findAll(pageable);
+        }
+        Slice<Order> slice = orderRepository.findAllBy(pageable);
+        long total = approximateCounter.count("order", orderRepository::count);
+        return new PageImpl<>(slice.getContent(), pageable, total);
+    }
+
+    public Window<Order> getScrolledData(ScrollPosition position, Sort sort, int size) {
+        return orderRepository.findAllBy(position, sort, Limit.of(size));
     }
 }
@@ -1,6 +1,47 @@
 package com.perso.ecomm.orders.orderItem;
 
+import com.perso.ecomm.orders.order.OrderStatus;
+import com.perso.ecomm.util.NdjsonResponseWriter;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    // items grouped by order, for rebuilding views from the order history; only the order and
+    // product ids are read, straight from order_item
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = NdjsonResponseWriter.FETCH_SIZE))
+    @Query("""
+            SELECT i.order.orderId AS orderId, i.product.productId AS productId
+            FROM OrderItem i
+            WHERE i.order.orderId <= :maxOrderId
+            ORDER BY i.order.orderId""")
+    Stream<OrderLine> streamLinesUpTo(@Param("maxOrderId") long maxOrderId);
+
+    // outer joins, so products without a category still count towards the overall boards
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = NdjsonResponseWriter.FETCH_SIZE))
+    @Query("""
+            SELECT o.orderId AS orderId, o.orderDate AS orderDate, p.productId AS productId,
+                   c.categoryId AS categoryId, i.quantity AS quantity
+            FROM OrderItem i JOIN i.order o LEFT JOIN i.product p LEFT JOIN p.category c
+            WHERE o.orderId <= :maxOrderId AND o.orderDate >= :since AND o.status <> :excluded
+            ORDER BY o.orderId""")
+    Stream<OrderLine> streamLinesPlacedSince(@Param("maxOrderId") long maxOrderId,
+                                             @Param("since") Date since,
+                                             @Param("excluded") OrderStatus excluded);
+
+    // outer joins, so products without a category are not dropped
+    @Query("""
+            SELECT o.orderId AS orderId, o.orderDate AS orderDate, p.productId AS productId,
+                   c.categoryId AS categoryId, i.quantity AS quantity
+            FROM OrderItem i JOIN i.order o LEFT JOIN i.product p LEFT JOIN p.category c
+            WHERE o.orderId IN :orderIds""")
+    List<OrderLine> findLinesByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
 }
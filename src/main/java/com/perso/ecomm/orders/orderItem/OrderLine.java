@@ -0,0 +1,20 @@
+package com.perso.ecomm.orders.orderItem;
+
+import java.util.Date;
+
+/**
+ * Product and quantity of an order item with the order's date, without loading the order,
+ * the product or the item.
+ */
+public interface OrderLine {
+
+    Long getOrderId();
+
+    Date getOrderDate();
+
+    Long getProductId();
+
+    Long getCategoryId();
+
+    int getQuantity();
+}
@@ -0,0 +1,18 @@
+package com.perso.ecomm.playLoad.request;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ProductBulkUpdateRequest {
+
+    private Long productId;
+
+    private double priceBeforeDiscount;
+
+    private double priceAfterDiscount;
+
+    private int stockQuantity;
+
+}
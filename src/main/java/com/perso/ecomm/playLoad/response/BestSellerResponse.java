@@ -0,0 +1,8 @@
+package com.perso.ecomm.playLoad.response;
+
+import com.perso.ecomm.product.Product;
+
+public record BestSellerResponse(
+        Product product,
+        int quantitySold) {
+}
@@ -0,0 +1,7 @@
+package com.perso.ecomm.playLoad.response;
+
+public record CategorySummary(
+        Long categoryId,
+        String categoryName,
+        long productCount) {
+}
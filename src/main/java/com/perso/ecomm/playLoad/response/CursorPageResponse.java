@@ -0,0 +1,23 @@
+package com.perso.ecomm.playLoad.response;
+
+import com.perso.ecomm.util.KeysetCursor;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.util.List;
+
+public record CursorPageResponse<T>(
+        List<T> content,
+        int size,
+        boolean hasNext,
+        String next) {
+
+    public static <T> CursorPageResponse<T> of(Window<T> window, Sort sort) {
+        String next = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            next = KeysetCursor.encode((KeysetScrollPosition) window.positionAt(window.size() - 1), sort);
+        }
+        return new CursorPageResponse<>(window.getContent(), window.size(), window.hasNext(), next);
+    }
+}
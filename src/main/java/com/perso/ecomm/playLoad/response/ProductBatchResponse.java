@@ -0,0 +1,10 @@
+package com.perso.ecomm.playLoad.response;
+
+import com.perso.ecomm.product.Product;
+
+import java.util.List;
+
+public record ProductBatchResponse(
+        List<Product> products,
+        List<Long> missingIds) {
+}
@@ -0,0 +1,9 @@
+package com.perso.ecomm.playLoad.response;
+
+import java.util.List;
+
+public record ProductBulkUpdateResponse(
+        int requested,
+        int updated,
+        List<Long> missingIds) {
+}
@@ -0,0 +1,16 @@
+package com.perso.ecomm.playLoad.response;
+
+import com.perso.ecomm.product.ProductFacetIndex;
+import com.perso.ecomm.product.ProductSummary;
+
+import java.util.List;
+import java.util.Map;
+
+public record ProductFacetResponse(
+        List<ProductSummary> content,
+        int page,
+        int size,
+        int totalElements,
+        ProductFacetIndex.Facets facets,
+        Map<Long, ProductFacetIndex.PriceStats> priceStats) {
+}
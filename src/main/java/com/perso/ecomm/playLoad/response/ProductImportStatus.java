@@ -0,0 +1,18 @@
+package com.perso.ecomm.playLoad.response;
+
+import java.time.Instant;
+import java.util.List;
+
+public record ProductImportStatus(
+        String jobId,
+        String state,
+        long rowsRead,
+        long imported,
+        long failed,
+        Instant startedAt,
+        Instant finishedAt,
+        List<RowError> errors) {
+
+    public record RowError(long line, String message) {
+    }
+}
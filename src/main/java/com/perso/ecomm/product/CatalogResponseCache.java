@@ -0,0 +1,144 @@
+package com.perso.ecomm.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.perso.ecomm.productCategory.ProductCategoryChangedEvent;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Final response bytes of the hottest catalog lists, kept in identity and gzip form.
+ * <p>
+ * Entries are tagged with the {@link CatalogVersions} version they were built from. While the
+ * version holds, a request is answered by copying bytes to the servlet output stream: no query,
+ * no Jackson, no compression. Writes bump the version and clear the cache, and the next request
+ * rebuilds the entry; stock-only changes leave the entries to be rebuilt once their version
+ * moves, so a body never changes under the tag it was served with. Keys are fixed by the caller
+ * (endpoint plus the parameters that shape the body), never taken from the raw query string, so
+ * the cache cannot grow without bound. The gzip form is a representation of its own and carries
+ * its own tag, {@code "<version>-gzip"}.
+ */
+@Component
+public class CatalogResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final CatalogVersions catalogVersions;
+    private final Map<String, Body> bodies = new ConcurrentHashMap<>();
+
+    public CatalogResponseCache(ObjectMapper objectMapper, CatalogVersions catalogVersions) {
+        this.objectMapper = objectMapper;
+        this.catalogVersions = catalogVersions;
+    }
+
+    /**
+     * Answers with 304 when the client copy is current, otherwise with the cached JSON body,
+     * building it from {@code loader} when the catalog moved on. The body is looked up first:
+     * whether this request gets gzip, and so which tag it is compared against, depends on it.
+     */
+    public void serve(ServletWebRequest request, String key, Supplier<?> loader,
+                      CatalogVersions.Collection... collections) throws IOException {
+        // read before loading, so a racing write can only make the entry look older than it is
+        CatalogVersions.Version version = catalogVersions.current(collections);
+        Body body = bodies.get(key);
+        if (body == null || !body.etag().equals(version.etag())) {
+            body = build(version.etag(), loader.get());
+            bodies.put(key, body);
+        }
+        HttpServletResponse response = request.getResponse();
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = body.gzip() != null && acceptsGzip(request.getRequest());
+        if (request.checkNotModified(gzip ? body.gzipEtag() : body.etag(), version.lastModified())) {
+            return;
+        }
+        write(body, gzip, response);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!event.stockOnly()) {
+            bodies.clear();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(ProductCategoryChangedEvent event) {
+        bodies.clear();
+    }
+
+    private Body build(String etag, Object value) throws IOException {
+        byte[] identity = objectMapper.writeValueAsBytes(value);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(identity.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(identity);
+        }
+        byte[] gzipped = compressed.toByteArray();
+        // tiny bodies can come out larger once compressed
+        return new Body(etag, identity, gzipped.length < identity.length ? gzipped : null);
+    }
+
+    private static void write(Body body, boolean gzip, HttpServletResponse response) throws IOException {
+        byte[] bytes = body.identity();
+        if (gzip) {
+            bytes = body.gzip();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    /**
+     * True when Accept-Encoding gives gzip a non-zero quality, or gives one to {@code *} without
+     * listing gzip.
+     */
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        Double gzip = null;
+        Double any = null;
+        for (String header : Collections.list(request.getHeaders(HttpHeaders.ACCEPT_ENCODING))) {
+            for (String element : header.split(",")) {
+                String[] parameters = element.split(";");
+                String coding = parameters[0].trim().toLowerCase(Locale.ROOT);
+                if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                    gzip = quality(parameters);
+                } else if (coding.equals("*")) {
+                    any = quality(parameters);
+                }
+            }
+        }
+        return gzip != null ? gzip > 0 : any != null && any > 0;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private record Body(String etag, byte[] identity, byte[] gzip) {
+
+        String gzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gzip\"";
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.perso.ecomm.product;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * One row per {@link CatalogVersions.Collection}, shared by every node: the counter is bumped in
+ * the transaction that changes the collection, so all nodes derive the same tags from it.
+ */
+@Entity
+@Table(name = "catalog_version")
+@Getter
+@NoArgsConstructor
+public class CatalogVersionEntry {
+
+    @Id
+    @Column(length = 16)
+    private String collection;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(nullable = false)
+    private Date modifiedAt;
+}
@@ -0,0 +1,157 @@
+package com.perso.ecomm.product;
+
+import com.perso.ecomm.productCategory.ProductCategoryChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.WebRequest;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Version counters for the catalog collections, used as validators for conditional GETs.
+ * <p>
+ * The counters live in the {@code catalog_version} table, shared by every node behind the load
+ * balancer: the transaction that changes a collection bumps its row, and the row lock orders
+ * the bumps the same way as the commits. Each node keeps the values in memory and reloads a
+ * row after a local commit, and whenever a change made on another node is replayed to it as an
+ * event, so a tag issued by one node is recognised by all of them and a request carrying it can
+ * be answered with 304 before any query runs.
+ * <p>
+ * Orders only move stock, and taking the row lock in every order transaction would serialize
+ * checkout on it. Stock-only changes are instead folded into one bump per
+ * {@code catalog.version.sync-ms}, made outside any order, and every node reloads the counters
+ * on the same schedule; list tags may therefore lag stock by that long. A single product is
+ * validated by its own last update instead, which stock changes do move.
+ */
+@Component
+public class CatalogVersions {
+
+    public enum Collection {
+        PRODUCTS,
+        CATEGORIES
+    }
+
+    private static final String BUMP = """
+            UPDATE catalog_version SET version = version + 1, modified_at = NOW(6) WHERE collection = ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLong[] versions = new AtomicLong[Collection.values().length];
+    private final AtomicLong[] lastModified = new AtomicLong[Collection.values().length];
+    private final AtomicBoolean stockChanged = new AtomicBoolean();
+
+    // the EntityManagerFactory parameter makes sure the schema (and the version table) exists
+    public CatalogVersions(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = new AtomicLong();
+            lastModified[i] = new AtomicLong();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        for (Collection collection : Collection.values()) {
+            // a node starting next to running ones keeps their counters
+            jdbcTemplate.update("INSERT IGNORE INTO catalog_version (collection, version, modified_at) VALUES (?, 0, NOW(6))",
+                    collection.name());
+            refresh(collection);
+        }
+    }
+
+    /**
+     * Read before loading the data it validates: a change racing with the load then produces a
+     * newer tag, never a stale one.
+     */
+    public Version current(Collection... collections) {
+        String tag = Arrays.stream(collections)
+                .map(collection -> String.valueOf(versions[collection.ordinal()].get()))
+                .collect(Collectors.joining("."));
+        long modified = Arrays.stream(collections)
+                .mapToLong(collection -> lastModified[collection.ordinal()].get())
+                .max()
+                .orElse(0);
+        return new Version("\"" + tag + "\"", modified);
+    }
+
+    /**
+     * Sets ETag and Last-Modified on the response; true when the client copy is current and a
+     * 304 has been prepared, in which case the handler should return {@code null}.
+     */
+    public boolean checkNotModified(WebRequest request, Collection... collections) {
+        Version version = current(collections);
+        return request.checkNotModified(version.etag(), version.lastModified());
+    }
+
+    /**
+     * Validates a single product by its own last update, so orders on other products leave its
+     * tag alone.
+     */
+    public boolean checkNotModified(WebRequest request, Product product) {
+        long modified = product.getLastUpdate() == null ? 0 : product.getLastUpdate().getTime();
+        return request.checkNotModified("\"" + product.getProductId() + "-" + modified + "\"", modified);
+    }
+
+    /**
+     * Reloads the shared counter of {@code collection}. Values only move forward, so a reload
+     * racing with a newer one cannot take the tag back.
+     */
+    public void refresh(Collection collection) {
+        jdbcTemplate.query("SELECT version, modified_at FROM catalog_version WHERE collection = ?", rs -> {
+            versions[collection.ordinal()].accumulateAndGet(rs.getLong("version"), Math::max);
+            Timestamp modified = rs.getTimestamp("modified_at");
+            if (modified != null) {
+                lastModified[collection.ordinal()].accumulateAndGet(modified.getTime(), Math::max);
+            }
+        }, collection.name());
+    }
+
+    // inside the writing transaction; replays of remote changes run outside of one and skip this
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void bumpProducts(ProductChangedEvent event) {
+        if (!event.stockOnly()) {
+            jdbcTemplate.update(BUMP, Collection.PRODUCTS.name());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void bumpCategories(ProductCategoryChangedEvent event) {
+        jdbcTemplate.update(BUMP, Collection.CATEGORIES.name());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.stockOnly()) {
+            stockChanged.set(true);
+        } else {
+            refresh(Collection.PRODUCTS);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(ProductCategoryChangedEvent event) {
+        refresh(Collection.CATEGORIES);
+    }
+
+    // also picks up the stock bumps made by other nodes
+    @Scheduled(fixedDelayString = "${catalog.version.sync-ms:5000}")
+    public void sync() {
+        if (stockChanged.getAndSet(false)) {
+            jdbcTemplate.update(BUMP, Collection.PRODUCTS.name());
+        }
+        for (Collection collection : Collection.values()) {
+            refresh(collection);
+        }
+    }
+
+    public record Version(String etag, long lastModified) {
+    }
+}
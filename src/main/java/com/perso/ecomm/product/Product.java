@@ -13,19 +13,31 @@ import org.hibernate.annotations.*;
 import java.util.Date;
 
 @Entity
-@Table
+@Table(indexes = {
+        @Index(name = "idx_product_creation_date", columnList = "creation_date, product_id"),
+        @Index(name = "idx_product_discount_percent", columnList = "discount_percent, product_id"),
+        @Index(name = "idx_product_category_product_id", columnList = "category_id, product_id"),
+        @Index(name = "idx_product_category_price", columnList = "category_id, price_after_discount"),
+        @Index(name = "idx_product_image_url", columnList = "image_url")
+})
 @Getter
 @Setter
 @AllArgsConstructor
 @ToString
 public class Product {
+    static final int ID_ALLOCATION_SIZE = 500;
+
+    // pooled ids, so inserts can be JDBC batched (see ProductIdGeneratorInitializer)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "product_id")
+    @TableGenerator(name = "product_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "product", allocationSize = Product.ID_ALLOCATION_SIZE)
     private Long productId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id",foreignKey = @ForeignKey(name = "fk_product_category"))
     @JsonIgnore
+    @ToString.Exclude
     private ProductCategory category;
 
     @Size(min = 2, message = "at least 2 character")
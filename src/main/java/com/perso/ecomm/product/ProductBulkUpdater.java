@@ -0,0 +1,101 @@
+package com.perso.ecomm.product;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies price and stock changes to many products with one UPDATE per chunk.
+ * <p>
+ * Each chunk of {@code product.bulk-update.chunk-size} rows is sent as a derived table joined to
+ * {@code product}, so new prices, stock and discount percentage are written by a single
+ * statement. The chunk is then read back once and published as one {@link ProductChangedEvent},
+ * which invalidates caches and refreshes the in-memory indexes once per chunk instead of once
+ * per product.
+ */
+@Component
+public class ProductBulkUpdater {
+
+    private static final String UPDATE_PREFIX = """
+            UPDATE product p JOIN (""";
+    private static final String FIRST_ROW = """
+            SELECT ? AS product_id, ? AS price_before_discount, ? AS price_after_discount, \
+            ? AS discount_percent, ? AS stock_quantity""";
+    private static final String NEXT_ROW = " UNION ALL SELECT ?, ?, ?, ?, ?";
+    private static final String UPDATE_SUFFIX = """
+            ) u ON p.product_id = u.product_id
+            SET p.price_before_discount = u.price_before_discount,
+                p.price_after_discount = u.price_after_discount,
+                p.discount_percent = u.discount_percent,
+                p.stock_quantity = u.stock_quantity,
+                p.last_update = NOW(6)""";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    public ProductBulkUpdater(ProductRepository productRepository,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${product.bulk-update.chunk-size:500}") int chunkSize) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Updates the given rows and returns the ids that matched no product.
+     */
+    public List<Long> update(List<Row> rows) {
+        List<Long> missingIds = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            List<Row> chunk = rows.subList(from, Math.min(from + chunkSize, rows.size()));
+            missingIds.addAll(transactionTemplate.execute(status -> updateChunk(chunk)));
+        }
+        return missingIds;
+    }
+
+    private List<Long> updateChunk(List<Row> chunk) {
+        StringBuilder sql = new StringBuilder(UPDATE_PREFIX).append(FIRST_ROW);
+        List<Object> args = new ArrayList<>(chunk.size() * 5);
+        List<Long> ids = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Row row = chunk.get(i);
+            if (i > 0) {
+                sql.append(NEXT_ROW);
+            }
+            args.add(row.productId());
+            args.add(row.priceBeforeDiscount());
+            args.add(row.priceAfterDiscount());
+            args.add(row.discountPercent());
+            args.add(row.stockQuantity());
+            ids.add(row.productId());
+        }
+        sql.append(UPDATE_SUFFIX);
+        jdbcTemplate.update(sql.toString(), args.toArray());
+
+        List<Product> updated = productRepository.findAllById(ids);
+        eventPublisher.publishEvent(ProductChangedEvent.saved(updated));
+
+        Set<Long> found = new HashSet<>();
+        updated.forEach(product -> found.add(product.getProductId()));
+        return ids.stream().filter(id -> !found.contains(id)).toList();
+    }
+
+    public record Row(Long productId, double priceBeforeDiscount, double priceAfterDiscount,
+                      double discountPercent, int stockQuantity) {
+    }
+}
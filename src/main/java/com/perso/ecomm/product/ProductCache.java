@@ -0,0 +1,182 @@
+package com.perso.ecomm.product;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-process read-through cache for products.
+ * <p>
+ * Single products are kept in an access-ordered map bounded by {@code product.cache.max-entries}.
+ * The full catalog list is kept as one snapshot whose weight is its size, so it is only held
+ * while it fits in the same budget. Every entry expires after {@code product.cache.ttl-seconds}
+ * and is invalidated explicitly once a {@link ProductChangedEvent} is committed.
+ */
+@Component
+public class ProductCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<Long, Entry<Product>> products = new LinkedHashMap<>(16, 0.75f, true);
+    private Entry<List<ProductSummary>> allProducts;
+    // bumped on every invalidation so a load racing with a write is not cached
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ProductCache(@Value("${product.cache.max-entries:10000}") int maxEntries,
+                        @Value("${product.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    public Optional<Product> get(Long productId, Supplier<Optional<Product>> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry<Product> entry = products.get(productId);
+            if (entry != null && !entry.isExpired()) {
+                hits.increment();
+                return Optional.of(entry.value());
+            }
+            if (entry != null) {
+                products.remove(productId);
+                evictions.increment();
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        Optional<Product> loaded = loader.get();
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                loaded.ifPresent(this::put);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Cached products of {@code productIds}, loading all misses with one call to {@code loader}.
+     * Ids that are neither cached nor loaded are absent from the result.
+     */
+    public Map<Long, Product> getAllById(Collection<Long> productIds, Function<List<Long>, List<Product>> loader) {
+        Map<Long, Product> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        long loadGeneration;
+        synchronized (this) {
+            for (Long productId : productIds) {
+                Entry<Product> entry = products.get(productId);
+                if (entry != null && !entry.isExpired()) {
+                    found.put(productId, entry.value());
+                    continue;
+                }
+                if (entry != null) {
+                    products.remove(productId);
+                    evictions.increment();
+                }
+                missing.add(productId);
+            }
+            loadGeneration = generation;
+        }
+        hits.add(found.size());
+        if (missing.isEmpty()) {
+            return found;
+        }
+        misses.add(missing.size());
+        List<Product> loaded = loader.apply(missing);
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                loaded.forEach(this::put);
+            }
+        }
+        loaded.forEach(product -> found.put(product.getProductId(), product));
+        return found;
+    }
+
+    public List<ProductSummary> getAll(Supplier<List<ProductSummary>> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            if (allProducts != null && !allProducts.isExpired()) {
+                hits.increment();
+                return allProducts.value();
+            }
+            if (allProducts != null) {
+                allProducts = null;
+                evictions.increment();
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        List<ProductSummary> loaded = List.copyOf(loader.get());
+        synchronized (this) {
+            if (loadGeneration == generation && loaded.size() <= maxEntries) {
+                allProducts = new Entry<>(loaded, expiry());
+            }
+        }
+        return loaded;
+    }
+
+    public synchronized void put(Product product) {
+        products.put(product.getProductId(), new Entry<>(product, expiry()));
+        Iterator<Map.Entry<Long, Entry<Product>>> eldest = products.entrySet().iterator();
+        while (products.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    public synchronized void invalidate(Long productId) {
+        generation++;
+        products.remove(productId);
+        allProducts = null;
+    }
+
+    public synchronized void invalidateAll(Collection<Long> productIds) {
+        generation++;
+        productIds.forEach(products::remove);
+        allProducts = null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidateAll(event.productIds());
+    }
+
+    public synchronized void clear() {
+        generation++;
+        products.clear();
+        allProducts = null;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), products.size(), allProducts != null);
+    }
+
+    private long expiry() {
+        return System.currentTimeMillis() + ttlMillis;
+    }
+
+    private record Entry<T>(T value, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size, boolean allProductsCached) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.perso.ecomm.product;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Walks the whole product table once, for the in-memory catalog views that are built at startup.
+ * Rows are streamed in a read-only transaction and the persistence context is cleared as we go,
+ * so a full scan does not keep every entity on the heap.
+ */
+@Component
+public class ProductCatalogScanner {
+
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int clearEvery;
+
+    public ProductCatalogScanner(ProductRepository productRepository,
+                                 EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${streaming.flush-every:500}") int clearEvery) {
+        this.productRepository = productRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.clearEvery = clearEvery;
+    }
+
+    public void forEach(Consumer<Product> consumer) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Product> products = productRepository.streamAllBy()) {
+                Iterator<Product> iterator = products.iterator();
+                int seen = 0;
+                while (iterator.hasNext()) {
+                    consumer.accept(iterator.next());
+                    if (++seen % clearEvery == 0) {
+                        entityManager.clear();
+                    }
+                }
+            }
+        });
+    }
+}
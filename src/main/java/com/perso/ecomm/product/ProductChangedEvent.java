@@ -0,0 +1,44 @@
+package com.perso.ecomm.product;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Published by product writes so in-memory views of the catalog can follow them.
+ * Listeners use {@code @TransactionalEventListener(fallbackExecution = true)} and therefore
+ * only see changes once they are committed.
+ * <p>
+ * {@code stockOnly} marks changes that only moved stock quantities, such as an order being
+ * placed: views still follow them, but they do not bump the shared catalog version.
+ */
+public record ProductChangedEvent(List<Product> saved, List<Long> deleted, boolean stockOnly) {
+
+    public ProductChangedEvent(List<Product> saved, List<Long> deleted) {
+        this(saved, deleted, false);
+    }
+
+    public static ProductChangedEvent saved(Product product) {
+        return new ProductChangedEvent(List.of(product), List.of());
+    }
+
+    public static ProductChangedEvent saved(Collection<Product> products) {
+        return new ProductChangedEvent(List.copyOf(products), List.of());
+    }
+
+    public static ProductChangedEvent stockChanged(Collection<Product> products) {
+        return new ProductChangedEvent(List.copyOf(products), List.of(), true);
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(List.of(), List.of(productId));
+    }
+
+    public static ProductChangedEvent deleted(Collection<Long> productIds) {
+        return new ProductChangedEvent(List.of(), List.copyOf(productIds));
+    }
+
+    public List<Long> productIds() {
+        return Stream.concat(saved.stream().map(Product::getProductId), deleted.stream()).toList();
+    }
+}
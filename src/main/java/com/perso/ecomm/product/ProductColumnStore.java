@@ -0,0 +1,206 @@
+package com.perso.ecomm.product;
+
+import com.perso.ecomm.exception.RequestValidationException;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The filterable attributes of the whole catalog, stored column by column.
+ * <p>
+ * Each product is one row across primitive arrays: id, price, discount, stock and a category
+ * code. Category ids are dictionary encoded, so the category column is an {@code int[]} and a
+ * category filter is a lookup in a {@code boolean[]} indexed by code. A row costs a few dozen
+ * bytes instead of a managed entity with its category, and a range filter is a single pass over
+ * the live rows that compares array elements and allocates nothing per row. Rows of deleted
+ * products are reused.
+ * <p>
+ * Built at startup and kept current from {@link ProductChangedEvent}s.
+ */
+@Component
+public class ProductColumnStore {
+
+    private static final int NO_CATEGORY = -1;
+
+    private final ProductCatalogScanner catalogScanner;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> rows = new HashMap<>();
+    private final Deque<Integer> freeRows = new ArrayDeque<>();
+    private final BitSet live = new BitSet();
+    private int nextRow;
+
+    private long[] productIds = new long[1024];
+    private double[] prices = new double[1024];
+    private double[] discounts = new double[1024];
+    private int[] stocks = new int[1024];
+    private int[] categoryCodes = new int[1024];
+
+    // category id -> code
+    private final Map<Long, Integer> categoryDictionary = new HashMap<>();
+
+    public ProductColumnStore(ProductCatalogScanner catalogScanner) {
+        this.catalogScanner = catalogScanner;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        catalogScanner.forEach(this::put);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        event.saved().forEach(this::put);
+        event.deleted().forEach(this::remove);
+    }
+
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.get(product.getProductId());
+            if (row == null) {
+                row = allocate(product.getProductId());
+            }
+            prices[row] = product.getPriceAfterDiscount();
+            discounts[row] = product.getDiscountPercent();
+            stocks[row] = product.getStockQuantity();
+            categoryCodes[row] = product.getCategory() == null
+                    ? NO_CATEGORY
+                    : encode(product.getCategory().getCategoryId());
+            live.set(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.remove(productId);
+            if (row != null) {
+                live.clear(row);
+                freeRows.push(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the products matching every bound of the filter, newest first.
+     */
+    public long[] filter(RangeFilter filter) {
+        double minPrice = filter.minPrice() == null ? Double.NEGATIVE_INFINITY : filter.minPrice();
+        double maxPrice = filter.maxPrice() == null ? Double.POSITIVE_INFINITY : filter.maxPrice();
+        double minDiscount = filter.minDiscount() == null ? Double.NEGATIVE_INFINITY : filter.minDiscount();
+        double maxDiscount = filter.maxDiscount() == null ? Double.POSITIVE_INFINITY : filter.maxDiscount();
+        if (minPrice > maxPrice || minDiscount > maxDiscount) {
+            throw new RequestValidationException("Lower bounds must not exceed upper bounds");
+        }
+        boolean checkStock = filter.inStock() != null;
+        boolean wantInStock = checkStock && filter.inStock();
+
+        lock.readLock().lock();
+        try {
+            boolean[] wantedCategories = wantedCategories(filter.categoryIds());
+            if (wantedCategories != null && wantedCategories.length == 0) {
+                return new long[0];
+            }
+            long[] matches = new long[64];
+            int count = 0;
+            for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+                double price = prices[row];
+                double discount = discounts[row];
+                if (price < minPrice || price > maxPrice || discount < minDiscount || discount > maxDiscount) {
+                    continue;
+                }
+                if (checkStock && (stocks[row] > 0) != wantInStock) {
+                    continue;
+                }
+                if (wantedCategories != null) {
+                    int code = categoryCodes[row];
+                    if (code == NO_CATEGORY || !wantedCategories[code]) {
+                        continue;
+                    }
+                }
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, count * 2);
+                }
+                matches[count++] = productIds[row];
+            }
+            return newestFirst(matches, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Codes of the wanted categories as a lookup table, empty when none of them is known, or
+     * {@code null} when categories are not filtered.
+     */
+    private boolean[] wantedCategories(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return null;
+        }
+        boolean[] wanted = new boolean[categoryDictionary.size()];
+        boolean any = false;
+        for (Long id : ids) {
+            Integer code = categoryDictionary.get(id);
+            if (code != null) {
+                wanted[code] = true;
+                any = true;
+            }
+        }
+        return any ? wanted : new boolean[0];
+    }
+
+    private int encode(Long categoryId) {
+        return categoryDictionary.computeIfAbsent(categoryId, id -> categoryDictionary.size());
+    }
+
+    private int allocate(Long productId) {
+        int row = freeRows.isEmpty() ? nextRow++ : freeRows.pop();
+        if (row == productIds.length) {
+            int capacity = productIds.length * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            discounts = Arrays.copyOf(discounts, capacity);
+            stocks = Arrays.copyOf(stocks, capacity);
+            categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        }
+        productIds[row] = productId;
+        rows.put(productId, row);
+        return row;
+    }
+
+    private static long[] newestFirst(long[] ids, int count) {
+        Arrays.sort(ids, 0, count);
+        long[] result = new long[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = ids[count - 1 - i];
+        }
+        return result;
+    }
+
+    /**
+     * Inclusive bounds; a null bound or an empty category list does not filter.
+     */
+    public record RangeFilter(Collection<Long> categoryIds,
+                              Double minPrice,
+                              Double maxPrice,
+                              Double minDiscount,
+                              Double maxDiscount,
+                              Boolean inStock) {
+    }
+}
@@ -1,79 +1,205 @@
 package com.perso.ecomm.product;
 
-
+import com.perso.ecomm.image.ImageFileSender;
+import com.perso.ecomm.playLoad.request.ProductBulkUpdateRequest;
 import com.perso.ecomm.playLoad.request.ProductRequest;
+import com.perso.ecomm.playLoad.response.CursorPageResponse;
+import com.perso.ecomm.playLoad.response.ProductBatchResponse;
+import com.perso.ecomm.playLoad.response.ProductBulkUpdateResponse;
+import com.perso.ecomm.playLoad.response.ProductFacetResponse;
+import com.perso.ecomm.playLoad.response.ProductImportStatus;
+import com.perso.ecomm.util.KeysetCursor;
+import com.perso.ecomm.util.NdjsonResponseWriter;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping(path = "product")
 public class ProductController {
     private final ProductService productService;
+    private final NdjsonResponseWriter ndjsonResponseWriter;
+    private final ProductImportService productImportService;
+    private final CatalogVersions catalogVersions;
+    private final CatalogResponseCache catalogResponseCache;
+    private final ImageFileSender imageFileSender;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, NdjsonResponseWriter ndjsonResponseWriter, ProductImportService productImportService, CatalogVersions catalogVersions, CatalogResponseCache catalogResponseCache, ImageFileSender imageFileSender) {
         this.productService = productService;
+        this.ndjsonResponseWriter = ndjsonResponseWriter;
+        this.productImportService = productImportService;
+        this.catalogVersions = catalogVersions;
+        this.catalogResponseCache = catalogResponseCache;
+        this.imageFileSender = imageFileSender;
     }
 
     // get all products
     @GetMapping
-    public List<Product> getProducts() {
+    public List<ProductSummary> getProducts() {
         return productService.getAllProducts();
     }
 
+    // stream all products, one JSON document per line
+    @GetMapping(produces = NdjsonResponseWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamProducts() {
+        return ndjsonResponseWriter.stream(productService::streamAllProducts);
+    }
+
     // get products by category
     @GetMapping("/{categoryId}/products")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable Long categoryId) {
-        List<Product> products = productService.getProductsByCategory(categoryId);
+    public ResponseEntity<List<ProductSummary>> getProductsByCategory(@PathVariable Long categoryId, WebRequest request) {
+        if (catalogVersions.checkNotModified(request, CatalogVersions.Collection.PRODUCTS)) {
+            return null;
+        }
+        List<ProductSummary> products = productService.getProductsByCategory(categoryId);
         return ResponseEntity.ok(products);
     }
 
     // get sortable, pageable products by category
     @GetMapping("/{categoryId}/paginate")
-    public ResponseEntity<Page<Product>> getProductsByCategory(
+    public ResponseEntity<Page<ProductSummary>> getProductsByCategory(
             @PathVariable Long categoryId,
             @RequestParam(name = "page", defaultValue = "0") int page,
             @RequestParam(name = "size", defaultValue = "5") int size,
             @RequestParam(name = "sortField", defaultValue = "productId") String sortField,
-            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder) {
+            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder,
+            @RequestParam(name = "approximateTotal", defaultValue = "false") boolean approximateTotal) {
 
         Sort.Direction direction = sortOrder.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, direction, sortField);
-        Page<Product> products = productService.getSortedAndPagedProductsByCategory(categoryId, pageable);
+        Page<ProductSummary> products = productService.getSortedAndPagedProductsByCategory(categoryId, pageable, approximateTotal);
         return ResponseEntity.ok(products);
     }
 
+    // get products by category page after page, following the cursor of the previous page
+    @GetMapping("/{categoryId}/paginate/cursor")
+    public ResponseEntity<CursorPageResponse<ProductSummary>> scrollProductsByCategory(
+            @PathVariable Long categoryId,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "size", defaultValue = "5") int size,
+            @RequestParam(name = "sortField", defaultValue = "productId") String sortField,
+            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder) {
+        Sort.Direction direction = sortOrder.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        KeysetCursor.Cursor cursor = KeysetCursor.decode(after, Product.class, Sort.by(direction, sortField));
+        Window<ProductSummary> products = productService.getScrolledProductsByCategory(categoryId, cursor.position(), cursor.sort(), size);
+        return ResponseEntity.ok(CursorPageResponse.of(products, cursor.sort()));
+    }
+
     // get all sortable, pageable products
     // @CrossOrigin(origins = "http://localhost:4200")
     @GetMapping("/paginate")
-    public Page<Product> paginateProduct(
+    public Page<ProductSummary> paginateProduct(
             @RequestParam(name = "page", defaultValue = "0") int page,
             @RequestParam(name = "size", defaultValue = "5") int size,
             @RequestParam(name = "sortField", defaultValue = "productId") String sortField,
-            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder) {
+            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder,
+            @RequestParam(name = "approximateTotal", defaultValue = "false") boolean approximateTotal) {
         Sort.Direction direction = sortOrder.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, direction, sortField);
-        return productService.getSortedAndPagedData(pageable);
+        return productService.getSortedAndPagedData(pageable, approximateTotal);
+    }
+
+    // get all products page after page, following the cursor of the previous page
+    @GetMapping("/paginate/cursor")
+    public CursorPageResponse<ProductSummary> scrollProducts(
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "size", defaultValue = "5") int size,
+            @RequestParam(name = "sortField", defaultValue = "productId") String sortField,
+            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder) {
+        Sort.Direction direction = sortOrder.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        KeysetCursor.Cursor cursor = KeysetCursor.decode(after, Product.class, Sort.by(direction, sortField));
+        Window<ProductSummary> products = productService.getScrolledData(cursor.position(), cursor.sort(), size);
+        return CursorPageResponse.of(products, cursor.sort());
+    }
+
+    // search products by name and description
+    @GetMapping("/search")
+    public List<ProductSummary> searchProducts(
+            @RequestParam(value = "q", defaultValue = "") String query,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return productService.searchProducts(query, Math.max(1, Math.min(limit, 100)));
+    }
+
+    // type-ahead: products whose name has a word starting with the prefix, best sellers first
+    @GetMapping("/suggest")
+    public List<ProductSuggester.Suggestion> suggestProducts(
+            @RequestParam(value = "prefix", defaultValue = "") String prefix,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return productService.suggestProducts(prefix, Math.max(1, limit));
+    }
+
+    // filter products, with facet counts and per-category price ranges for the filter
+    @GetMapping("/facets")
+    public ProductFacetResponse filterProducts(
+            @RequestParam(value = "category", required = false) List<Long> categoryIds,
+            @RequestParam(value = "price", required = false) List<Integer> priceBuckets,
+            @RequestParam(value = "discount", required = false) List<Integer> discountBuckets,
+            @RequestParam(value = "inStock", required = false) Boolean inStock,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        ProductFacetIndex.Filter filter = new ProductFacetIndex.Filter(categoryIds, priceBuckets, discountBuckets, inStock);
+        return productService.filterProducts(filter, Math.max(page, 0), Math.max(1, Math.min(size, 100)));
+    }
+
+    // filter products on price and discount ranges, stock and categories, newest first
+    @GetMapping("/filter")
+    public Page<ProductSummary> filterProductsByRange(
+            @RequestParam(value = "category", required = false) List<Long> categoryIds,
+            @RequestParam(value = "minPrice", required = false) Double minPrice,
+            @RequestParam(value = "maxPrice", required = false) Double maxPrice,
+            @RequestParam(value = "minDiscount", required = false) Double minDiscount,
+            @RequestParam(value = "maxDiscount", required = false) Double maxDiscount,
+            @RequestParam(value = "inStock", required = false) Boolean inStock,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        ProductColumnStore.RangeFilter filter = new ProductColumnStore.RangeFilter(
+                categoryIds, minPrice, maxPrice, minDiscount, maxDiscount, inStock);
+        return productService.filterProductsByRange(filter, PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, 100))));
+    }
+
+    // get several products by id, in the order asked for, with the ids that do not exist
+    @GetMapping("/batch")
+    public ProductBatchResponse getProductsByIds(@RequestParam("ids") List<Long> productIds) {
+        return productService.getProductsByIds(productIds);
+    }
+
+    // same as above, for id lists too long for a query string
+    @PostMapping("/batch")
+    public ProductBatchResponse getProductsByIdsInBody(@RequestBody List<Long> productIds) {
+        return productService.getProductsByIds(productIds);
     }
 
     // get product by its id
     @GetMapping("/{productId}")
-    public ResponseEntity<?> getProductById(@PathVariable("productId") Long productId) {
+    public ResponseEntity<?> getProductById(@PathVariable("productId") Long productId, WebRequest request) {
         try {
             Product product = productService.getProductById(productId);
+            if (catalogVersions.checkNotModified(request, product)) {
+                return null;
+            }
             return ResponseEntity.ok(product);
         } catch (EntityNotFoundException ex) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Product not found");
@@ -82,16 +208,22 @@ public class ProductController {
 
     // Get latest products
     @GetMapping("/latest-products")
-    public ResponseEntity<List<Product>> getLatestProducts() {
-        List<Product> products = productService.getLatestProducts();
-        return ResponseEntity.ok(products);
+    public void getLatestProducts(ServletWebRequest request) throws IOException {
+        catalogResponseCache.serve(request, "product/latest-products",
+                productService::getLatestProducts, CatalogVersions.Collection.PRODUCTS);
     }
 
     //Get Hot Deals
     @GetMapping("/hot-deals")
-    public ResponseEntity<List<Product>> getHotDeals() {
-        List<Product> products = productService.getHotDealsProducts();
-        return ResponseEntity.ok(products);
+    public void getHotDeals(ServletWebRequest request) throws IOException {
+        catalogResponseCache.serve(request, "product/hot-deals",
+                productService::getHotDealsProducts, CatalogVersions.Collection.PRODUCTS);
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/cache-stats")
+    public ProductCache.Stats getCacheStats() {
+        return productService.getCacheStats();
     }
 
     @DeleteMapping(path = "/{productId}")
@@ -102,38 +234,63 @@ public class ProductController {
 
     @CrossOrigin(origins = "http://localhost:4200")
     @PostMapping
-    public ResponseEntity<?> createNewProduct(@Valid ProductRequest productRequest, BindingResult result) throws IOException {
+    public CompletableFuture<ResponseEntity<?>> createNewProduct(@Valid ProductRequest productRequest, BindingResult result) {
 
         if (result.hasErrors()) {
             Map<String, String> errors = new HashMap<>();
             result.getFieldErrors().forEach(error -> errors.put(error.getField(), error.getDefaultMessage()));
-            return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST));
         }
-            Product a = productService.registerNewProduct(productRequest);
-            return ResponseEntity.ok(a);
+            // the request thread is released while the image is written
+            return productService.registerNewProduct(productRequest).thenApply(ResponseEntity::ok);
+
+    }
+
+    // import a CSV or JSON lines catalog in the background
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(path = "/import", consumes = {ProductImportService.TEXT_CSV_VALUE, NdjsonResponseWriter.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ProductImportStatus> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        ProductImportStatus status = productImportService.submit(body, contentType);
+        return ResponseEntity.accepted()
+                .location(URI.create("/product/import/" + status.jobId()))
+                .body(status);
+    }
+
+    // progress and row errors of an import
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/import/{jobId}")
+    public ProductImportStatus getImportStatus(@PathVariable("jobId") String jobId) {
+        return productImportService.getStatus(jobId);
+    }
 
+    // update prices and stock of many products at once
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public ProductBulkUpdateResponse bulkUpdateProducts(@RequestBody List<ProductBulkUpdateRequest> requests) {
+        return productService.bulkUpdateProducts(requests);
     }
 
     @PutMapping(path = "/{productId}")
-    public ResponseEntity<?> updateProduct(
+    public CompletableFuture<ResponseEntity<?>> updateProduct(
             @PathVariable("productId") Long productId,
             @Valid ProductRequest productRequest,
             BindingResult result
-    ) throws IOException {
+    ) {
         if (result.hasErrors()) {
             Map<String, String> errors = new HashMap<>();
             result.getFieldErrors().forEach(error -> errors.put(error.getField(), error.getDefaultMessage()));
-            return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST));
         }
-            Product product = productService.updateProduct(productId, productRequest);
-            return ResponseEntity.ok(product);
+            return productService.updateProduct(productId, productRequest).thenApply(ResponseEntity::ok);
 
     }
 
     @CrossOrigin(origins = "http://localhost:4200")
     @GetMapping(path = "img/{id}")
-    public byte[] getPhoto(@PathVariable("id") Long id) throws Exception {
-
-        return productService.getImage(id);
+    public void getPhoto(@PathVariable("id") Long id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // streamed from the file, honouring Range and conditional headers
+        imageFileSender.send(productService.getImagePath(id), request, response);
     }
 }
@@ -0,0 +1,317 @@
+package com.perso.ecomm.product;
+
+import com.perso.ecomm.exception.RequestValidationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Bitmap indexes over the catalog for faceted filtering.
+ * <p>
+ * Every product gets a dense document number and one bit in the bitmap of its category, price
+ * bucket, discount bucket and stock state. A filter is an OR of the selected values inside each
+ * dimension and an AND across dimensions. Facet counts are disjunctive: the counts of a dimension
+ * are computed against the other dimensions' filters only, so selecting a price bucket does not
+ * hide the other price buckets. Per-category price statistics follow the same rule for the price
+ * dimension, which is what a range slider needs.
+ * <p>
+ * Built at startup and kept current from {@link ProductChangedEvent}s.
+ */
+@Component
+public class ProductFacetIndex {
+
+    private final ProductCatalogScanner catalogScanner;
+    private final double[] priceBounds;
+    private final double[] discountBounds;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> documents = new HashMap<>();
+    private final Deque<Integer> freeDocuments = new ArrayDeque<>();
+    private long[] productIds = new long[1024];
+    private long[] categoryIds = new long[1024];
+    private double[] prices = new double[1024];
+    private int nextDocument;
+
+    private final BitSet live = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private final Map<Long, BitSet> byCategory = new HashMap<>();
+    private final BitSet[] byPrice;
+    private final BitSet[] byDiscount;
+
+    public ProductFacetIndex(ProductCatalogScanner catalogScanner,
+                             @Value("${product.facets.price-bounds:25,50,100,250,500}") double[] priceBounds,
+                             @Value("${product.facets.discount-bounds:10,25,50}") double[] discountBounds) {
+        this.catalogScanner = catalogScanner;
+        this.priceBounds = priceBounds.clone();
+        this.discountBounds = discountBounds.clone();
+        Arrays.sort(this.priceBounds);
+        Arrays.sort(this.discountBounds);
+        this.byPrice = newBitmaps(this.priceBounds.length + 1);
+        this.byDiscount = newBitmaps(this.discountBounds.length + 1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        catalogScanner.forEach(this::index);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        event.saved().forEach(this::index);
+        event.deleted().forEach(this::remove);
+    }
+
+    public void index(Product product) {
+        if (product.getCategory() == null) {
+            remove(product.getProductId());
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer document = documents.get(product.getProductId());
+            if (document == null) {
+                document = allocate(product.getProductId());
+            } else {
+                clearBits(document);
+            }
+            categoryIds[document] = product.getCategory().getCategoryId();
+            prices[document] = product.getPriceAfterDiscount();
+            live.set(document);
+            byCategory.computeIfAbsent(categoryIds[document], id -> new BitSet()).set(document);
+            byPrice[bucketOf(priceBounds, product.getPriceAfterDiscount())].set(document);
+            byDiscount[bucketOf(discountBounds, product.getDiscountPercent())].set(document);
+            inStock.set(document, product.getStockQuantity() > 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Integer document = documents.remove(productId);
+            if (document != null) {
+                clearBits(document);
+                live.clear(document);
+                freeDocuments.push(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Matching product ids, newest first, with the facet counts and price statistics of the filter.
+     */
+    public Result search(Filter filter) {
+        lock.readLock().lock();
+        try {
+            BitSet categoryMatch = union(filter.categoryIds(), byCategory::get);
+            BitSet priceMatch = union(filter.priceBuckets(), bucket -> bucket(byPrice, bucket, "price"));
+            BitSet discountMatch = union(filter.discountBuckets(), bucket -> bucket(byDiscount, bucket, "discount"));
+            BitSet stockMatch = filter.inStock() == null ? null : stockBitmap(filter.inStock());
+
+            BitSet matches = intersect(categoryMatch, priceMatch, discountMatch, stockMatch);
+
+            BitSet withoutCategory = intersect(priceMatch, discountMatch, stockMatch);
+            Map<Long, Integer> categoryCounts = new TreeMap<>();
+            byCategory.forEach((categoryId, bitmap) -> {
+                int count = countAnd(bitmap, withoutCategory);
+                if (count > 0) {
+                    categoryCounts.put(categoryId, count);
+                }
+            });
+
+            BitSet withoutPrice = intersect(categoryMatch, discountMatch, stockMatch);
+            BitSet withoutDiscount = intersect(categoryMatch, priceMatch, stockMatch);
+            BitSet withoutStock = intersect(categoryMatch, priceMatch, discountMatch);
+
+            Facets facets = new Facets(
+                    categoryCounts,
+                    bucketCounts(priceBounds, byPrice, withoutPrice),
+                    bucketCounts(discountBounds, byDiscount, withoutDiscount),
+                    countAnd(inStock, withoutStock),
+                    withoutStock.cardinality() - countAnd(inStock, withoutStock));
+
+            return new Result(newestFirst(matches), facets, priceStats(withoutPrice));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int allocate(Long productId) {
+        int document = freeDocuments.isEmpty() ? nextDocument++ : freeDocuments.pop();
+        if (document == productIds.length) {
+            int capacity = productIds.length * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+        }
+        productIds[document] = productId;
+        documents.put(productId, document);
+        return document;
+    }
+
+    private void clearBits(int document) {
+        BitSet category = byCategory.get(categoryIds[document]);
+        if (category != null) {
+            category.clear(document);
+            if (category.isEmpty()) {
+                byCategory.remove(categoryIds[document]);
+            }
+        }
+        for (BitSet bitmap : byPrice) {
+            bitmap.clear(document);
+        }
+        for (BitSet bitmap : byDiscount) {
+            bitmap.clear(document);
+        }
+        inStock.clear(document);
+    }
+
+    private BitSet stockBitmap(boolean wanted) {
+        BitSet bitmap = (BitSet) inStock.clone();
+        if (!wanted) {
+            bitmap.xor(live);
+        }
+        return bitmap;
+    }
+
+    private List<Long> newestFirst(BitSet matches) {
+        long[] ids = new long[matches.cardinality()];
+        int i = 0;
+        for (int document = matches.nextSetBit(0); document >= 0; document = matches.nextSetBit(document + 1)) {
+            ids[i++] = productIds[document];
+        }
+        Arrays.sort(ids);
+        List<Long> result = new ArrayList<>(ids.length);
+        for (int j = ids.length - 1; j >= 0; j--) {
+            result.add(ids[j]);
+        }
+        return result;
+    }
+
+    private Map<Long, PriceStats> priceStats(BitSet documents) {
+        Map<Long, double[]> accumulators = new TreeMap<>();
+        for (int document = documents.nextSetBit(0); document >= 0; document = documents.nextSetBit(document + 1)) {
+            double price = prices[document];
+            double[] stats = accumulators.computeIfAbsent(categoryIds[document],
+                    id -> new double[]{Double.MAX_VALUE, -Double.MAX_VALUE, 0, 0});
+            stats[0] = Math.min(stats[0], price);
+            stats[1] = Math.max(stats[1], price);
+            stats[2] += price;
+            stats[3]++;
+        }
+        Map<Long, PriceStats> result = new TreeMap<>();
+        accumulators.forEach((categoryId, stats) ->
+                result.put(categoryId, new PriceStats(stats[0], stats[1], stats[2] / stats[3], (int) stats[3])));
+        return result;
+    }
+
+    private BitSet bucket(BitSet[] buckets, int bucket, String dimension) {
+        if (bucket < 0 || bucket >= buckets.length) {
+            throw new RequestValidationException("Unknown " + dimension + " bucket " + bucket);
+        }
+        return buckets[bucket];
+    }
+
+    /**
+     * OR of the bitmaps of the selected values, or {@code null} when the dimension is not filtered.
+     */
+    private static <K> BitSet union(Collection<K> keys, Function<K, BitSet> bitmaps) {
+        if (keys == null || keys.isEmpty()) {
+            return null;
+        }
+        BitSet result = new BitSet();
+        for (K key : keys) {
+            BitSet bitmap = bitmaps.apply(key);
+            if (bitmap != null) {
+                result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    private BitSet intersect(BitSet... filters) {
+        BitSet result = (BitSet) live.clone();
+        for (BitSet filter : filters) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private static int countAnd(BitSet bitmap, BitSet filter) {
+        BitSet result = (BitSet) bitmap.clone();
+        result.and(filter);
+        return result.cardinality();
+    }
+
+    private static List<BucketCount> bucketCounts(double[] bounds, BitSet[] buckets, BitSet filter) {
+        List<BucketCount> counts = new ArrayList<>(buckets.length);
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            double from = bucket == 0 ? 0 : bounds[bucket - 1];
+            Double to = bucket < bounds.length ? bounds[bucket] : null;
+            counts.add(new BucketCount(bucket, from, to, countAnd(buckets[bucket], filter)));
+        }
+        return counts;
+    }
+
+    private static int bucketOf(double[] bounds, double value) {
+        int bucket = 0;
+        while (bucket < bounds.length && value >= bounds[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static BitSet[] newBitmaps(int count) {
+        BitSet[] bitmaps = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            bitmaps[i] = new BitSet();
+        }
+        return bitmaps;
+    }
+
+    public record Filter(Collection<Long> categoryIds,
+                         Collection<Integer> priceBuckets,
+                         Collection<Integer> discountBuckets,
+                         Boolean inStock) {
+    }
+
+    public record Result(List<Long> productIds, Facets facets, Map<Long, PriceStats> priceStats) {
+    }
+
+    public record Facets(Map<Long, Integer> categories,
+                         List<BucketCount> prices,
+                         List<BucketCount> discounts,
+                         int inStock,
+                         int outOfStock) {
+    }
+
+    /**
+     * Products in {@code [from, to)}; {@code to} is null for the open-ended last bucket.
+     */
+    public record BucketCount(int bucket, double from, Double to, int count) {
+    }
+
+    public record PriceStats(double min, double max, double avg, int count) {
+    }
+}
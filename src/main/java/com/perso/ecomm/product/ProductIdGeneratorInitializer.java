@@ -0,0 +1,32 @@
+package com.perso.ecomm.product;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Product ids used to come from AUTO_INCREMENT and are now handed out in blocks from the
+ * {@code id_generator} table. Before the first insert, move the generator past the highest
+ * existing id so pooled ids never collide with rows written by the identity strategy.
+ * Taking the greatest value keeps this safe when several nodes start together.
+ */
+@Component
+public class ProductIdGeneratorInitializer {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // the EntityManagerFactory parameter makes sure the schema (and the generator table) exists
+    public ProductIdGeneratorInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.update("""
+                INSERT INTO id_generator (sequence_name, next_val)
+                SELECT 'product', COALESCE(MAX(product_id), 0) + ? FROM product
+                ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val))""",
+                Product.ID_ALLOCATION_SIZE + 1);
+    }
+}
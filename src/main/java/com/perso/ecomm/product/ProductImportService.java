@@ -0,0 +1,481 @@
+package com.perso.ecomm.product;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.perso.ecomm.exception.RequestValidationException;
+import com.perso.ecomm.exception.ResourceNotFoundException;
+import com.perso.ecomm.image.ImageStore;
+import com.perso.ecomm.playLoad.response.ProductImportStatus;
+import com.perso.ecomm.productCategory.ProductCategory;
+import com.perso.ecomm.productCategory.ProductCategoryRepository;
+import com.perso.ecomm.util.NdjsonResponseWriter;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk product import from CSV or JSON lines.
+ * <p>
+ * The request body is spooled to a temporary file and the import runs on a single background
+ * thread, so the upload returns as soon as the file is on disk. Rows are validated one by one and
+ * written in batches of {@code product.import.batch-size}: categories of a batch are resolved
+ * with a single query, products are persisted in one transaction and Hibernate sends them as JDBC
+ * batches, which the pooled {@link Product} id generator makes possible. Invalid rows are
+ * reported with their line number and do not stop the import.
+ * <p>
+ * Expected columns (CSV header or JSON keys, case-insensitive): name, description, category,
+ * priceAfterDiscount, priceBeforeDiscount, stockQuantity and imageUrl. Images are optional and
+ * stored as given, in canonical form when they name a stored image; no file is written.
+ */
+@Service
+public class ProductImportService {
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final ProductCategoryRepository productCategoryRepository;
+    private final ProductService productService;
+    private final ImageStore imageStore;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxErrors;
+    private final int retainedJobs;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, ImportJob> jobs = new LinkedHashMap<>();
+
+    public ProductImportService(ProductCategoryRepository productCategoryRepository,
+                                ProductService productService,
+                                ImageStore imageStore,
+                                EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher,
+                                ObjectMapper objectMapper,
+                                @Value("${product.import.batch-size:1000}") int batchSize,
+                                @Value("${product.import.max-errors:1000}") int maxErrors,
+                                @Value("${product.import.retained-jobs:20}") int retainedJobs) {
+        this.productCategoryRepository = productCategoryRepository;
+        this.productService = productService;
+        this.imageStore = imageStore;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        this.retainedJobs = retainedJobs;
+    }
+
+    public ProductImportStatus submit(InputStream body, String contentType) throws IOException {
+        Format format = Format.of(contentType);
+        Path spool = Files.createTempFile("product-import-", format.extension);
+        try {
+            Files.copy(body, spool, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+        ImportJob job = register(new ImportJob(UUID.randomUUID().toString()));
+        executor.execute(() -> run(job, spool, format));
+        return job.status();
+    }
+
+    public synchronized ProductImportStatus getStatus(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Import job " + jobId + " not found");
+        }
+        return job.status();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private synchronized ImportJob register(ImportJob job) {
+        Iterator<ImportJob> eldest = jobs.values().iterator();
+        while (jobs.size() >= retainedJobs && eldest.hasNext()) {
+            if (eldest.next().finishedAt != null) {
+                eldest.remove();
+            }
+        }
+        jobs.put(job.id, job);
+        return job;
+    }
+
+    private void run(ImportJob job, Path spool, Format format) {
+        job.startedAt = Instant.now();
+        job.state = "RUNNING";
+        try (BufferedReader reader = Files.newBufferedReader(spool, StandardCharsets.UTF_8)) {
+            RowSource rows = format == Format.CSV ? new CsvRows(reader) : new JsonRows(reader, objectMapper);
+            List<ImportRow> batch = new ArrayList<>(batchSize);
+            for (RawRow raw = rows.next(); raw != null; raw = rows.next()) {
+                job.rowsRead.incrementAndGet();
+                ImportRow row = parse(job, raw);
+                if (row != null) {
+                    batch.add(row);
+                }
+                if (batch.size() == batchSize) {
+                    insert(job, batch);
+                    batch.clear();
+                }
+            }
+            insert(job, batch);
+            job.state = "COMPLETED";
+        } catch (Exception e) {
+            job.state = "FAILED";
+            job.error(0, e.getMessage());
+        } finally {
+            job.finishedAt = Instant.now();
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException ignored) {
+                // temp file, the OS will reclaim it
+            }
+        }
+    }
+
+    private ImportRow parse(ImportJob job, RawRow raw) {
+        if (raw.error() != null) {
+            job.error(raw.line(), raw.error());
+            return null;
+        }
+        Map<String, String> fields = raw.fields();
+        try {
+            String name = text(fields, "name");
+            String description = text(fields, "description");
+            String category = text(fields, "category");
+            double priceAfterDiscount = number(fields, "priceafterdiscount", "priceAfterDiscount");
+            double priceBeforeDiscount = number(fields, "pricebeforediscount", "priceBeforeDiscount");
+            int stockQuantity = (int) number(fields, "stockquantity", "stockQuantity");
+            String imageUrl = text(fields, "imageurl");
+            if (imageUrl != null) {
+                imageUrl = imageStore.canonicalUrl(imageUrl);
+            }
+
+            if (name == null || name.length() < 2) {
+                throw new IllegalArgumentException("name: at least 2 character");
+            }
+            if (description == null || description.length() < 2) {
+                throw new IllegalArgumentException("description: at least 2 character");
+            }
+            if (category == null) {
+                throw new IllegalArgumentException("category: required field");
+            }
+            if (priceAfterDiscount < 0.01) {
+                throw new IllegalArgumentException("priceAfterDiscount: should be a number");
+            }
+            if (stockQuantity < 0) {
+                throw new IllegalArgumentException("stockQuantity: stock should more than or equal 0");
+            }
+            double discountPercent = priceBeforeDiscount > 0
+                    ? productService.calculateDiscountPercent(priceBeforeDiscount, priceAfterDiscount)
+                    : 0;
+            return new ImportRow(raw.line(), name, description, category, priceAfterDiscount,
+                    priceBeforeDiscount, discountPercent, stockQuantity, imageUrl);
+        } catch (IllegalArgumentException e) {
+            job.error(raw.line(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void insert(ImportJob job, List<ImportRow> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        resolveCategories(job, batch);
+        List<ImportRow> valid = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            if (job.categoryIds.containsKey(row.category())) {
+                valid.add(row);
+            } else {
+                job.error(row.line(), "Category not found: " + row.category());
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Product> products = new ArrayList<>(valid.size());
+                for (ImportRow row : valid) {
+                    ProductCategory category = entityManager.getReference(ProductCategory.class, job.categoryIds.get(row.category()));
+                    Product product = new Product(category, row.name(), row.description(), row.priceAfterDiscount(),
+                            row.priceBeforeDiscount(), row.stockQuantity(), row.imageUrl());
+                    product.setDiscountPercent(row.discountPercent());
+                    entityManager.persist(product);
+                    products.add(product);
+                }
+                entityManager.flush();
+                entityManager.clear();
+                Map<Long, Long> added = new HashMap<>();
+                valid.forEach(row -> added.merge(job.categoryIds.get(row.category()), 1L, Long::sum));
+                added.forEach(productCategoryRepository::adjustProductCount);
+                eventPublisher.publishEvent(ProductChangedEvent.saved(products));
+            });
+            job.imported.addAndGet(valid.size());
+        } catch (RuntimeException e) {
+            valid.forEach(row -> job.error(row.line(), "Batch rejected: " + e.getMessage()));
+        }
+    }
+
+    // one query per batch, for the category names this job has not seen yet
+    private void resolveCategories(ImportJob job, List<ImportRow> batch) {
+        Set<String> unknown = new HashSet<>();
+        for (ImportRow row : batch) {
+            if (!job.categoryIds.containsKey(row.category())) {
+                unknown.add(row.category());
+            }
+        }
+        if (!unknown.isEmpty()) {
+            productCategoryRepository.findByCategoryNameIn(unknown)
+                    .forEach(category -> job.categoryIds.put(category.getCategoryName(), category.getCategoryId()));
+        }
+    }
+
+    private static String text(Map<String, String> fields, String key) {
+        String value = fields.get(key);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static double number(Map<String, String> fields, String key, String label) {
+        String value = text(fields, key);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(label + ": should be a number");
+        }
+    }
+
+    private enum Format {
+        CSV(".csv"),
+        JSONL(".jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        static Format of(String contentType) {
+            MediaType mediaType = contentType == null ? null : MediaType.parseMediaType(contentType);
+            if (mediaType != null && mediaType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE))) {
+                return CSV;
+            }
+            if (mediaType != null && mediaType.isCompatibleWith(MediaType.parseMediaType(NdjsonResponseWriter.APPLICATION_NDJSON_VALUE))) {
+                return JSONL;
+            }
+            throw new RequestValidationException("Import expects " + TEXT_CSV_VALUE + " or "
+                    + NdjsonResponseWriter.APPLICATION_NDJSON_VALUE);
+        }
+    }
+
+    private record ImportRow(long line, String name, String description, String category,
+                             double priceAfterDiscount, double priceBeforeDiscount, double discountPercent,
+                             int stockQuantity, String imageUrl) {
+    }
+
+    record RawRow(long line, Map<String, String> fields, String error) {
+    }
+
+    interface RowSource {
+        RawRow next() throws IOException;
+    }
+
+    private static final class JsonRows implements RowSource {
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+        private long lineNumber;
+
+        JsonRows(BufferedReader reader, ObjectMapper objectMapper) {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public RawRow next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+            } while (line != null && line.isBlank());
+            if (line == null) {
+                return null;
+            }
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                if (!node.isObject()) {
+                    return new RawRow(lineNumber, null, "Expected a JSON object");
+                }
+                Map<String, String> fields = new HashMap<>();
+                node.fields().forEachRemaining(field -> fields.put(field.getKey().toLowerCase(Locale.ROOT),
+                        field.getValue().isNull() ? null : field.getValue().asText()));
+                return new RawRow(lineNumber, fields, null);
+            } catch (JsonProcessingException e) {
+                return new RawRow(lineNumber, null, "Malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    /**
+     * RFC 4180 reader: quoted fields may hold commas, doubled quotes and line breaks.
+     */
+    static final class CsvRows implements RowSource {
+        private final BufferedReader reader;
+        private final List<String> header;
+        private long lineNumber;
+
+        CsvRows(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            List<String> names = readRecord();
+            if (names == null) {
+                throw new IOException("Empty CSV file");
+            }
+            this.header = new ArrayList<>(names.size());
+            for (String name : names) {
+                header.add(name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+            }
+        }
+
+        @Override
+        public RawRow next() throws IOException {
+            List<String> values;
+            long line;
+            do {
+                line = lineNumber + 1;
+                values = readRecord();
+            } while (values != null && values.size() == 1 && values.get(0).isBlank());
+            if (values == null) {
+                return null;
+            }
+            if (values.size() > header.size()) {
+                return new RawRow(line, null, "Expected " + header.size() + " columns, found " + values.size());
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                fields.put(header.get(i), values.get(i));
+            }
+            return new RawRow(line, fields, null);
+        }
+
+        private List<String> readRecord() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+            List<String> values = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == line.length()) {
+                    String next = quoted ? reader.readLine() : null;
+                    if (next == null) {
+                        break;
+                    }
+                    lineNumber++;
+                    field.append('\n');
+                    line = next;
+                    i = 0;
+                    continue;
+                }
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            values.add(field.toString());
+            return values;
+        }
+    }
+
+    private final class ImportJob {
+        private final String id;
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<ProductImportStatus.RowError> errors = new ArrayList<>();
+        // category name -> id, filled batch by batch
+        private final Map<String, Long> categoryIds = new HashMap<>();
+        private volatile String state = "QUEUED";
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+
+        ImportJob(String id) {
+            this.id = id;
+        }
+
+        void error(long line, String message) {
+            if (line > 0) {
+                failed.incrementAndGet();
+            }
+            synchronized (errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(new ProductImportStatus.RowError(line, message));
+                }
+            }
+        }
+
+        ProductImportStatus status() {
+            List<ProductImportStatus.RowError> snapshot;
+            synchronized (errors) {
+                snapshot = List.copyOf(errors);
+            }
+            return new ProductImportStatus(id, state, rowsRead.get(), imported.get(), failed.get(),
+                    startedAt, finishedAt, snapshot);
+        }
+    }
+}
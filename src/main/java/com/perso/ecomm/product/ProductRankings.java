@@ -0,0 +1,172 @@
+package com.perso.ecomm.product;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the "latest products" and "hot deals" homepage lists in memory.
+ * <p>
+ * Both lists are ordered top-K sets seeded from the database at startup and updated from
+ * {@link ProductChangedEvent}s, so reads return a prebuilt snapshot. A list only goes back to
+ * the database when it can no longer tell its own order from the rows it does not hold: deletes
+ * shrink it below K, or an update moves an entry to the end, while more qualifying rows may exist.
+ */
+@Component
+public class ProductRankings {
+
+    private static final Comparator<Ranked> NEWEST_FIRST = Comparator
+            .comparingLong(Ranked::creationTime).reversed()
+            .thenComparing(Ranked::productId, Comparator.reverseOrder());
+
+    private static final Comparator<Ranked> BIGGEST_DISCOUNT_FIRST = Comparator
+            .comparingDouble(Ranked::discountPercent).reversed()
+            .thenComparing(Ranked::productId, Comparator.reverseOrder());
+
+    private final double hotDealsMinDiscount;
+    private final TopK latest;
+    private final TopK hotDeals;
+
+    public ProductRankings(ProductRepository productRepository,
+                           @Value("${product.latest.size:10}") int latestSize,
+                           @Value("${product.hot-deals.size:20}") int hotDealsSize,
+                           @Value("${product.hot-deals.min-discount:45}") double hotDealsMinDiscount) {
+        this.hotDealsMinDiscount = hotDealsMinDiscount;
+        this.latest = new TopK(latestSize, NEWEST_FIRST,
+                () -> productRepository.findLatestByCreationDateDesc(PageRequest.of(0, latestSize)));
+        this.hotDeals = new TopK(hotDealsSize, BIGGEST_DISCOUNT_FIRST,
+                () -> productRepository.findHotDeals(hotDealsMinDiscount, PageRequest.of(0, hotDealsSize)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        latest.reload();
+        hotDeals.reload();
+    }
+
+    public List<Product> getLatest() {
+        return latest.snapshot();
+    }
+
+    public List<Product> getHotDeals() {
+        return hotDeals.snapshot();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        for (Product product : event.saved()) {
+            Ranked ranked = Ranked.of(product);
+            latest.offer(ranked);
+            if (ranked.discountPercent() > hotDealsMinDiscount) {
+                hotDeals.offer(ranked);
+            } else {
+                hotDeals.remove(ranked.productId());
+            }
+        }
+        for (Long productId : event.deleted()) {
+            latest.remove(productId);
+            hotDeals.remove(productId);
+        }
+    }
+
+    record Ranked(Long productId, long creationTime, double discountPercent, Product product) {
+        static Ranked of(Product product) {
+            long creationTime = product.getCreationDate() == null ? 0 : product.getCreationDate().getTime();
+            return new Ranked(product.getProductId(), creationTime, product.getDiscountPercent(), product);
+        }
+    }
+
+    static final class TopK {
+        private final int capacity;
+        private final Supplier<List<Product>> loader;
+        private final TreeSet<Ranked> entries;
+        private final Map<Long, Ranked> byId = new HashMap<>();
+        // true when the database may hold qualifying rows that did not fit in the set
+        private boolean overflow;
+        private volatile boolean stale = true;
+        private volatile List<Product> snapshot = List.of();
+
+        TopK(int capacity, Comparator<Ranked> order, Supplier<List<Product>> loader) {
+            this.capacity = capacity;
+            this.loader = loader;
+            this.entries = new TreeSet<>(order);
+        }
+
+        List<Product> snapshot() {
+            if (stale) {
+                reload();
+            }
+            return snapshot;
+        }
+
+        synchronized void reload() {
+            List<Product> products = loader.get();
+            entries.clear();
+            byId.clear();
+            products.forEach(product -> add(Ranked.of(product)));
+            overflow = products.size() >= capacity;
+            publish();
+            stale = false;
+        }
+
+        synchronized void offer(Ranked ranked) {
+            Ranked previous = byId.remove(ranked.productId());
+            if (previous != null) {
+                entries.remove(previous);
+            }
+            if (entries.size() < capacity || entries.comparator().compare(ranked, entries.last()) < 0) {
+                add(ranked);
+            } else {
+                // it still qualifies, so the database now holds a row the set does not
+                overflow = true;
+            }
+            while (entries.size() > capacity) {
+                byId.remove(entries.pollLast().productId());
+                overflow = true;
+            }
+            if (previous != null && overflow && entries.last() == ranked) {
+                // rows that did not fit may rank between where it was and where it went
+                stale = true;
+                return;
+            }
+            afterRemoval(previous != null);
+        }
+
+        synchronized void remove(Long productId) {
+            Ranked previous = byId.remove(productId);
+            if (previous == null) {
+                return;
+            }
+            entries.remove(previous);
+            afterRemoval(true);
+        }
+
+        private void add(Ranked ranked) {
+            entries.add(ranked);
+            byId.put(ranked.productId(), ranked);
+        }
+
+        private void afterRemoval(boolean removed) {
+            if (removed && overflow && entries.size() < capacity) {
+                stale = true;
+                return;
+            }
+            publish();
+        }
+
+        // a stale list stays stale until reloaded, whatever changes in between
+        private void publish() {
+            snapshot = entries.stream().map(Ranked::product).toList();
+        }
+    }
+}
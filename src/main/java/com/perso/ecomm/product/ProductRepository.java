@@ -1,26 +1,62 @@
 package com.perso.ecomm.product;
 
+import com.perso.ecomm.image.ImageUrlCount;
 import com.perso.ecomm.productCategory.ProductCategory;
+import com.perso.ecomm.util.NdjsonResponseWriter;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface  ProductRepository extends JpaRepository<Product, Long> {
 
-    List<Product> findByCategory(ProductCategory category);
-    Page<Product> findAllByCategory(ProductCategory productCategory, Pageable pageable);
+    long countByCategory(ProductCategory productCategory);
 
     @Query("SELECT p FROM Product p ORDER BY p.creationDate DESC")
     List<Product> findLatestByCreationDateDesc(Pageable pageable);
 
-    List<Product> findByDiscountPercentGreaterThan(double discountPercent);
+    @Query("SELECT p FROM Product p WHERE p.discountPercent > :minDiscount ORDER BY p.discountPercent DESC, p.productId DESC")
+    List<Product> findHotDeals(@Param("minDiscount") double minDiscount, Pageable pageable);
 
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = NdjsonResponseWriter.FETCH_SIZE))
+    @Query("SELECT p FROM Product p")
+    Stream<Product> streamAllBy();
 
-//    @Query("SELECT p FROM Product p ORDER BY p.discountPercent DESC")
-//    List<Product> findHotDealsByDiscountPercent(Pageable pageable);
+    @Query("SELECT p.imageUrl AS imageUrl, COUNT(p) AS referenceCount FROM Product p WHERE p.imageUrl IS NOT NULL GROUP BY p.imageUrl")
+    List<ImageUrlCount> countByImageUrl();
+
+    // an equality on the image_url index; content-addressed urls are stored canonical (see ImageStore)
+    long countByImageUrl(String imageUrl);
+
+    List<Product> findByImageUrl(String imageUrl);
+
+    // listings: ProductSummary projections, no entity hydration
+    List<ProductSummary> findSummariesBy();
+    List<ProductSummary> findSummariesByCategory(ProductCategory category);
+    List<ProductSummary> findSummariesByProductIdIn(Collection<Long> productIds);
+
+    Page<ProductSummary> findSummariesBy(Pageable pageable);
+    Page<ProductSummary> findSummariesByCategory(ProductCategory productCategory, Pageable pageable);
+    Slice<ProductSummary> findSummarySliceBy(Pageable pageable);
+    Slice<ProductSummary> findSummarySliceByCategory(ProductCategory productCategory, Pageable pageable);
+
+    Window<ProductSummary> findSummariesBy(ScrollPosition position, Sort sort, Limit limit);
+    Window<ProductSummary> findSummariesByCategory(ProductCategory productCategory, ScrollPosition position, Sort sort, Limit limit);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = NdjsonResponseWriter.FETCH_SIZE))
+    Stream<ProductSummary> streamSummariesBy();
 }
@@ -0,0 +1,299 @@
+package com.perso.ecomm.product;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index over product names and descriptions.
+ * <p>
+ * Every query token must match a product, either exactly, as a prefix of an indexed term, or
+ * within {@code product.search.max-edits} edits. Typo candidates are found through a
+ * deletion neighbourhood (each term is also indexed under its variants with up to max-edits
+ * characters removed), so fuzzy lookups are hash probes instead of a scan of the vocabulary.
+ * The index is built at startup and kept current from {@link ProductChangedEvent}s.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private static final int NAME = 1;
+    private static final int DESCRIPTION = 2;
+
+    private static final int EXACT_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int FUZZY_SCORE = 1;
+
+    private final ProductCatalogScanner catalogScanner;
+    private final int maxEdits;
+    private final int minFuzzyLength;
+    private final int maxPrefixExpansions;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // term -> product id -> fields (NAME / DESCRIPTION bits) the term appears in
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    // term with up to maxEdits characters deleted -> indexed terms producing it
+    private final Map<String, Set<String>> deletions = new HashMap<>();
+    private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+
+    public ProductSearchIndex(ProductCatalogScanner catalogScanner,
+                              @Value("${product.search.max-edits:1}") int maxEdits,
+                              @Value("${product.search.min-fuzzy-length:4}") int minFuzzyLength,
+                              @Value("${product.search.max-prefix-expansions:64}") int maxPrefixExpansions) {
+        this.catalogScanner = catalogScanner;
+        this.maxEdits = maxEdits;
+        this.minFuzzyLength = minFuzzyLength;
+        this.maxPrefixExpansions = maxPrefixExpansions;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        catalogScanner.forEach(this::index);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        event.saved().forEach(this::index);
+        event.deleted().forEach(this::remove);
+    }
+
+    /**
+     * Ids of the best matching products, best first.
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> scores = null;
+            for (String token : tokens) {
+                Map<Long, Integer> matches = match(token);
+                scores = scores == null ? matches : intersect(scores, matches);
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            return top(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        Map<String, Integer> fields = new HashMap<>();
+        tokenize(product.getName()).forEach(term -> fields.merge(term, NAME, (a, b) -> a | b));
+        tokenize(product.getDescription()).forEach(term -> fields.merge(term, DESCRIPTION, (a, b) -> a | b));
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getProductId());
+            fields.forEach((term, mask) -> {
+                Map<Long, Integer> documents = postings.get(term);
+                if (documents == null) {
+                    documents = new HashMap<>();
+                    postings.put(term, documents);
+                    addDeletions(term);
+                }
+                documents.put(product.getProductId(), mask);
+            });
+            documentTerms.put(product.getProductId(), new HashSet<>(fields.keySet()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_ALPHANUMERIC.split(normalized.toLowerCase(Locale.ROOT))) {
+            if (token.length() > 1) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private Map<Long, Integer> match(String token) {
+        Map<Long, Integer> scores = new HashMap<>();
+        collect(scores, postings.get(token), EXACT_SCORE);
+
+        int expansions = 0;
+        for (Map.Entry<String, Map<Long, Integer>> entry
+                : postings.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+            if (++expansions > maxPrefixExpansions) {
+                break;
+            }
+            collect(scores, entry.getValue(), PREFIX_SCORE);
+        }
+
+        if (token.length() >= minFuzzyLength) {
+            Set<String> candidates = new HashSet<>();
+            for (String variant : deletionVariants(token)) {
+                candidates.addAll(deletions.getOrDefault(variant, Set.of()));
+            }
+            for (String candidate : candidates) {
+                if (!candidate.equals(token) && withinEdits(token, candidate)) {
+                    collect(scores, postings.get(candidate), FUZZY_SCORE);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static void collect(Map<Long, Integer> scores, Map<Long, Integer> documents, int score) {
+        if (documents == null) {
+            return;
+        }
+        documents.forEach((productId, mask) -> {
+            int weighted = (mask & NAME) != 0 ? score * 2 : score;
+            scores.merge(productId, weighted, Math::max);
+        });
+    }
+
+    private static Map<Long, Integer> intersect(Map<Long, Integer> left, Map<Long, Integer> right) {
+        Map<Long, Integer> smaller = left.size() <= right.size() ? left : right;
+        Map<Long, Integer> larger = smaller == left ? right : left;
+        Map<Long, Integer> result = new HashMap<>();
+        smaller.forEach((productId, score) -> {
+            Integer other = larger.get(productId);
+            if (other != null) {
+                result.put(productId, score + other);
+            }
+        });
+        return result;
+    }
+
+    private static List<Long> top(Map<Long, Integer> scores, int limit) {
+        Comparator<Map.Entry<Long, Integer>> worstFirst = Map.Entry.<Long, Integer>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey());
+        PriorityQueue<Map.Entry<Long, Integer>> best = new PriorityQueue<>(worstFirst);
+        for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+            best.offer(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Long> ids = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            ids.add(0, best.poll().getKey());
+        }
+        return ids;
+    }
+
+    private void removeDocument(Long productId) {
+        Set<String> terms = documentTerms.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Integer> documents = postings.get(term);
+            documents.remove(productId);
+            if (documents.isEmpty()) {
+                postings.remove(term);
+                removeDeletions(term);
+            }
+        }
+    }
+
+    private void addDeletions(String term) {
+        if (term.length() < minFuzzyLength) {
+            return;
+        }
+        for (String variant : deletionVariants(term)) {
+            deletions.computeIfAbsent(variant, key -> new HashSet<>(2)).add(term);
+        }
+    }
+
+    private void removeDeletions(String term) {
+        if (term.length() < minFuzzyLength) {
+            return;
+        }
+        for (String variant : deletionVariants(term)) {
+            Set<String> terms = deletions.get(variant);
+            if (terms != null && terms.remove(term) && terms.isEmpty()) {
+                deletions.remove(variant);
+            }
+        }
+    }
+
+    private Set<String> deletionVariants(String term) {
+        Set<String> variants = new HashSet<>();
+        variants.add(term);
+        Set<String> frontier = Set.of(term);
+        for (int edit = 0; edit < maxEdits; edit++) {
+            Set<String> next = new HashSet<>();
+            for (String word : frontier) {
+                for (int i = 0; i < word.length(); i++) {
+                    next.add(word.substring(0, i) + word.substring(i + 1));
+                }
+            }
+            variants.addAll(next);
+            frontier = next;
+        }
+        return variants;
+    }
+
+    /**
+     * Levenshtein distance check that gives up as soon as a row exceeds {@code maxEdits}.
+     */
+    private boolean withinEdits(String a, String b) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) {
+            return false;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return false;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= maxEdits;
+    }
+}
@@ -1,118 +1,235 @@
 package com.perso.ecomm.product;
 
+import com.perso.ecomm.exception.RequestValidationException;
 import com.perso.ecomm.exception.ResourceNotFoundException;
+import com.perso.ecomm.image.ImageStore;
+import com.perso.ecomm.playLoad.request.ProductBulkUpdateRequest;
 import com.perso.ecomm.playLoad.request.ProductRequest;
+import com.perso.ecomm.playLoad.response.ProductBatchResponse;
+import com.perso.ecomm.playLoad.response.ProductBulkUpdateResponse;
+import com.perso.ecomm.playLoad.response.ProductFacetResponse;
 import com.perso.ecomm.productCategory.ProductCategory;
 import com.perso.ecomm.productCategory.ProductCategoryRepository;
-import com.perso.ecomm.util.FileUploadUtil;
+import com.perso.ecomm.util.ApproximateCounter;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
-import org.springframework.web.multipart.MultipartFile;
-
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ProductService {
     @Value("${upload.path}")
     private String uploadPath;
+    @Value("${product.batch.max-ids:200}")
+    private int maxBatchIds;
     private final ProductRepository productRepository;
     private final ProductCategoryRepository productCategoryRepository;
-
-    public ProductService(ProductRepository productRepository, ProductCategoryRepository productCategoryRepository) {
+    private final ProductCache productCache;
+    private final ProductRankings productRankings;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductColumnStore productColumnStore;
+    private final ProductSuggester productSuggester;
+    private final ProductBulkUpdater productBulkUpdater;
+    private final ImageStore imageStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ApproximateCounter approximateCounter;
+    private final TransactionTemplate transactionTemplate;
+
+    public ProductService(ProductRepository productRepository, ProductCategoryRepository productCategoryRepository, ProductCache productCache, ProductRankings productRankings, ProductSearchIndex productSearchIndex, ProductFacetIndex productFacetIndex, ProductColumnStore productColumnStore, ProductSuggester productSuggester, ProductBulkUpdater productBulkUpdater, ImageStore imageStore, ApplicationEventPublisher eventPublisher, ApproximateCounter approximateCounter, PlatformTransactionManager transactionManager) {
         this.productRepository = productRepository;
         this.productCategoryRepository = productCategoryRepository;
+        this.productCache = productCache;
+        this.productRankings = productRankings;
+        this.productSearchIndex = productSearchIndex;
+        this.productFacetIndex = productFacetIndex;
+        this.productColumnStore = productColumnStore;
+        this.productSuggester = productSuggester;
+        this.productBulkUpdater = productBulkUpdater;
+        this.imageStore = imageStore;
+        this.eventPublisher = eventPublisher;
+        this.approximateCounter = approximateCounter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public List<ProductSummary> getAllProducts() {
+        return productCache.getAll(productRepository::findSummariesBy);
     }
 
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    public Stream<ProductSummary> streamAllProducts() {
+        return productRepository.streamSummariesBy();
     }
 
-    public List<Product> getProductsByCategory(Long categoryId) {
+    public List<ProductSummary> getProductsByCategory(Long categoryId) {
         ProductCategory category = productCategoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found"));
-        return productRepository.findByCategory(category);
+        return productRepository.findSummariesByCategory(category);
+    }
+
+    public Page<ProductSummary> getSortedAndPagedProductsByCategory(Long categoryId, Pageable pageable, boolean approximateTotal) {
+        ProductCategory productCategory = productCategoryRepository.findById(categoryId)
+                .orElseThrow(() -> new ResourceNotFoundException("Category not found"));
+        if (!approximateTotal) {
+            return productRepository.findSummariesByCategory(productCategory, pageable);
+        }
+        Slice<ProductSummary> slice = productRepository.findSummarySliceByCategory(productCategory, pageable);
+        long total = approximateCounter.count("product:category:" + categoryId, () -> productRepository.countByCategory(productCategory));
+        return new PageImpl<>(slice.getContent(), pageable, total);
+    }
+
+    public Page<ProductSummary> getSortedAndPagedData(Pageable pageable, boolean approximateTotal) {
+        if (!approximateTotal) {
+            return productRepository.findSummariesBy(pageable);
+        }
+        Slice<ProductSummary> slice = productRepository.findSummarySliceBy(pageable);
+        long total = approximateCounter.count("product", productRepository::count);
+        return new PageImpl<>(slice.getContent(), pageable, total);
     }
 
-    public Page<Product> getSortedAndPagedProductsByCategory(Long categoryId, Pageable pageable) {
+    public Window<ProductSummary> getScrolledProductsByCategory(Long categoryId, ScrollPosition position, Sort sort, int size) {
         ProductCategory productCategory = productCategoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found"));
-        return productRepository.findAllByCategory(productCategory, pageable);
+        return productRepository.findSummariesByCategory(productCategory, position, sort, Limit.of(size));
     }
 
-    public Page<Product> getSortedAndPagedData(Pageable pageable) {
-        return productRepository.findAll(pageable);
+    public Window<ProductSummary> getScrolledData(ScrollPosition position, Sort sort, int size) {
+        return productRepository.findSummariesBy(position, sort, Limit.of(size));
     }
 
 
     // get latest products
     public List<Product> getLatestProducts() {
-        Pageable pageable = PageRequest.of(0, 10);  // Fetching the latest 10 products
-        return productRepository.findLatestByCreationDateDesc(pageable);
+        return productRankings.getLatest();
     }
 
     //get hot deals
     public List<Product> getHotDealsProducts() {
-        return productRepository.findByDiscountPercentGreaterThan(45);
+        return productRankings.getHotDeals();
+    }
+
+    // search products by name and description, best matches first
+    public List<ProductSummary> searchProducts(String query, int limit) {
+        return findSummariesInOrder(productSearchIndex.search(query, limit));
+    }
+
+    // autocomplete on product names, from memory
+    public List<ProductSuggester.Suggestion> suggestProducts(String prefix, int limit) {
+        return productSuggester.suggest(prefix, limit);
     }
 
+    // filter products on category, price, discount and stock, with facet counts for the filter
+    public ProductFacetResponse filterProducts(ProductFacetIndex.Filter filter, int page, int size) {
+        ProductFacetIndex.Result result = productFacetIndex.search(filter);
+        List<Long> ids = result.productIds();
+        int from = Math.min(page * size, ids.size());
+        List<ProductSummary> content = findSummariesInOrder(ids.subList(from, Math.min(from + size, ids.size())));
+        return new ProductFacetResponse(content, page, size, ids.size(), result.facets(), result.priceStats());
+    }
+
+    // filter products on category, price and discount ranges and stock, newest first
+    public Page<ProductSummary> filterProductsByRange(ProductColumnStore.RangeFilter filter, Pageable pageable) {
+        long[] ids = productColumnStore.filter(filter);
+        int from = (int) Math.min(pageable.getOffset(), ids.length);
+        int to = Math.min(from + pageable.getPageSize(), ids.length);
+        List<Long> pageIds = Arrays.stream(ids, from, to).boxed().toList();
+        return new PageImpl<>(findSummariesInOrder(pageIds), pageable, ids.length);
+    }
+
+    private List<ProductSummary> findSummariesInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ProductSummary> products = productRepository.findSummariesByProductIdIn(ids).stream()
+                .collect(Collectors.toMap(ProductSummary::getProductId, Function.identity()));
+        return ids.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Transactional
     public void deleteProduct(Long productId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product with ID + categoryId + not found"));
         productRepository.delete(product);
-
+        imageStore.release(product.getImageUrl());
+        adjustProductCount(product.getCategory(), -1);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(productId));
     }
 
-    public Product registerNewProduct(ProductRequest productRequest) throws IOException {
+    // the image is written on the upload pool; the product row is only saved once it is on disk
+    public CompletableFuture<Product> registerNewProduct(ProductRequest productRequest) {
 
         ProductCategory productCategory = productCategoryRepository
                 .findProductCategoriesByCategoryName(productRequest.getCategory())
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found"));
 
-        MultipartFile image = productRequest.getImageUrl();
+        return imageStore.store(uploadPath, productRequest.getImageUrl(), storedImage -> transactionTemplate.execute(status -> {
+
+            double discountPercent = calculateDiscountPercent(
+                    productRequest.getPriceBeforeDiscount(),
+                    productRequest.getPriceAfterDiscount()
+            );
+
+            Product product = new Product(
+                    productCategory,
+                    productRequest.getName(),
+                    productRequest.getDescription(),
+                    productRequest.getPriceAfterDiscount(),
+                    productRequest.getPriceBeforeDiscount(),
+                    productRequest.getStockQuantity(),
+                    imageStore.urlOf(storedImage)
+            );
+
+            product.setDiscountPercent(discountPercent);
+
+            Product saved = productRepository.save(product);
+            adjustProductCount(productCategory, 1);
+            eventPublisher.publishEvent(ProductChangedEvent.saved(saved));
+            return saved;
+        }));
+    }
 
 
-        if (image.isEmpty() || !image.getContentType().startsWith("image/")) {
-            throw new IllegalArgumentException("Invalid image file");
+    public CompletableFuture<Product> updateProduct(Long productId, ProductRequest productRequest) {
+        if (productRequest.getImageUrl() == null || productRequest.getImageUrl().isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    transactionTemplate.execute(status -> applyUpdate(productId, productRequest, null)));
         }
-
-        String extension = StringUtils.getFilenameExtension(image.getOriginalFilename());
-        String fileName = UUID.randomUUID() + "." + extension;
-
-        FileUploadUtil.saveFile(uploadPath, fileName, image);
-
-        double discountPercent = calculateDiscountPercent(
-                productRequest.getPriceBeforeDiscount(),
-                productRequest.getPriceAfterDiscount()
-        );
-
-        Product product = new Product(
-                productCategory,
-                productRequest.getName(),
-                productRequest.getDescription(),
-                productRequest.getPriceAfterDiscount(),
-                productRequest.getPriceBeforeDiscount(),
-                productRequest.getStockQuantity(),
-                "/images/" + fileName
-        );
-
-        product.setDiscountPercent(discountPercent);
-
-        return productRepository.save(product);
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException( " product with id " + productId + " doesn't exist ");
+        }
+        // no transaction is held while the new image is written
+        return imageStore.store(uploadPath, productRequest.getImageUrl(),
+                storedImage -> transactionTemplate.execute(status -> applyUpdate(productId, productRequest, storedImage)));
     }
 
-
-    @Transactional
-    public Product updateProduct(Long productId, ProductRequest productRequest) throws IOException {
+    private Product applyUpdate(Long productId, ProductRequest productRequest, Path storedImage) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException( " product with id " + productId + " doesn't exist "));
 
@@ -123,28 +240,115 @@ public class ProductService {
         product.setDescription(productRequest.getDescription());
         product.setPriceAfterDiscount(productRequest.getPriceAfterDiscount());
         product.setPriceBeforeDiscount(productRequest.getPriceBeforeDiscount());
+        product.setDiscountPercent(calculateDiscountPercent(
+                productRequest.getPriceBeforeDiscount(),
+                productRequest.getPriceAfterDiscount()
+        ));
         product.setStockQuantity(productRequest.getStockQuantity());
+        if (product.getCategory() == null || !product.getCategory().getCategoryId().equals(productCategory.getCategoryId())) {
+            adjustProductCount(product.getCategory(), -1);
+            adjustProductCount(productCategory, 1);
+        }
         product.setCategory(productCategory);
-        if (productRequest.getImageUrl()!=null){
-            FileUploadUtil.saveFile(uploadPath, productRequest.getImageUrl().getOriginalFilename(), productRequest.getImageUrl());
-            product.setImageUrl("http://localhost:8080/images/" + productRequest.getImageUrl().getOriginalFilename());
+        if (storedImage != null) {
+            imageStore.release(product.getImageUrl());
+            product.setImageUrl(imageStore.urlOf(storedImage));
         }
+        eventPublisher.publishEvent(ProductChangedEvent.saved(product));
         return product;
     }
 
-    public byte[] getImage(Long id) throws IOException {
-        Product product = productRepository.findById(id).get();
-        String filePath = uploadPath + product.getImageUrl();
+    // reprice / restock many products, one UPDATE per chunk
+    public ProductBulkUpdateResponse bulkUpdateProducts(List<ProductBulkUpdateRequest> requests) {
+        // the last entry wins when an id is repeated
+        Map<Long, ProductBulkUpdater.Row> rows = new LinkedHashMap<>();
+        List<String> errors = new ArrayList<>();
+        for (ProductBulkUpdateRequest request : requests) {
+            String error = validateBulkUpdate(request);
+            if (error != null) {
+                errors.add(error);
+                continue;
+            }
+            double discountPercent = calculateDiscountPercent(request.getPriceBeforeDiscount(), request.getPriceAfterDiscount());
+            rows.put(request.getProductId(), new ProductBulkUpdater.Row(
+                    request.getProductId(),
+                    request.getPriceBeforeDiscount(),
+                    request.getPriceAfterDiscount(),
+                    discountPercent,
+                    request.getStockQuantity()));
+        }
+        if (!errors.isEmpty()) {
+            throw new RequestValidationException(errors.size() + " invalid rows: "
+                    + String.join("; ", errors.subList(0, Math.min(errors.size(), 20))));
+        }
+        List<Long> missingIds = productBulkUpdater.update(new ArrayList<>(rows.values()));
+        return new ProductBulkUpdateResponse(requests.size(), rows.size() - missingIds.size(), missingIds);
+    }
+
+    private static String validateBulkUpdate(ProductBulkUpdateRequest request) {
+        if (request.getProductId() == null) {
+            return "productId is required";
+        }
+        if (request.getPriceAfterDiscount() < 0.01) {
+            return "product " + request.getProductId() + ": priceAfterDiscount should be a number";
+        }
+        if (request.getPriceBeforeDiscount() <= request.getPriceAfterDiscount()) {
+            return "product " + request.getProductId() + ": Price before discount must be greater than Price After discount";
+        }
+        if (request.getStockQuantity() < 0) {
+            return "product " + request.getProductId() + ": stock should more than or equal 0";
+        }
+        return null;
+    }
+
+    private void adjustProductCount(ProductCategory category, long delta) {
+        if (category != null) {
+            productCategoryRepository.adjustProductCount(category.getCategoryId(), delta);
+        }
+    }
 
-        return Files.readAllBytes(new File(filePath).toPath());
+    // resolved from the cached product, so it follows that entry's eviction and invalidation
+    public Path getImagePath(Long id) {
+        return imageStore.pathOf(getProductById(id).getImageUrl())
+                .orElseThrow(() -> new ResourceNotFoundException("Product with id " + id + " has no image"));
     }
 
 
     public Product getProductById(Long productId) {
-        return productRepository.findById(productId)
+        return productCache.get(productId, () -> productRepository.findById(productId))
                 .orElseThrow(() -> new EntityNotFoundException("Product with id " + productId + " not found"));
     }
 
+    // several products in one round trip, in request order, from the cache where possible
+    public ProductBatchResponse getProductsByIds(List<Long> productIds) {
+        Set<Long> ids = new LinkedHashSet<>(productIds);
+        ids.remove(null);
+        if (ids.size() > maxBatchIds) {
+            throw new RequestValidationException("At most " + maxBatchIds + " products can be fetched at once");
+        }
+        Map<Long, Product> found = productCache.getAllById(ids, productRepository::findAllById);
+        List<Product> products = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : ids) {
+            Product product = found.get(id);
+            if (product != null) {
+                products.add(product);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new ProductBatchResponse(products, missingIds);
+    }
+
+    // products of the given ids in that order, from the cache where possible; unknown ids are skipped
+    public List<Product> getProductsInOrder(List<Long> productIds) {
+        Map<Long, Product> found = productCache.getAllById(productIds, productRepository::findAllById);
+        return productIds.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     public double calculateDiscountPercent(double priceBeforeDiscount, double priceAfterDiscount) {
         if (priceBeforeDiscount > 0 && priceBeforeDiscount <= priceAfterDiscount) {
             throw new IllegalArgumentException("Price before discount must be greater than Price After discount");
@@ -153,4 +357,8 @@ public class ProductService {
         return (int) Math.round(discount);
     }
 
+    public ProductCache.Stats getCacheStats() {
+        return productCache.stats();
+    }
+
 }
@@ -0,0 +1,338 @@
+package com.perso.ecomm.product;
+
+import com.perso.ecomm.bestseller.BestSellers;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Search-as-you-type over product names.
+ * <p>
+ * Names are normalized (lower case, no accents, single spaces) and every word start of a name
+ * becomes a key, so "red running shoes" is suggested for "run" and "sho" as well. A key is a
+ * product and an offset into its normalized name, never a copy of the suffix. Keys are kept in
+ * sorted arrays: the keys starting with a prefix are a contiguous range, found with two binary
+ * searches. Products are ranked by units sold over the last week, newest first on ties.
+ * For every prefix matching more than {@code product.suggest.scan-limit} keys the best products
+ * are computed at build time, so no lookup scans more than that many keys.
+ * <p>
+ * The structure is immutable. Writes only record the new names; once
+ * {@code product.suggest.rebuild-after-changes} of them accumulated, or the oldest is
+ * {@code product.suggest.max-staleness-ms} old, a new structure is built in the background and
+ * swapped in, and readers never wait for it. The ranking is refreshed every
+ * {@code product.suggest.ranking-refresh-ms} even without writes. Every build, including the
+ * first one, runs on the single suggest thread.
+ */
+@Slf4j
+@Component
+public class ProductSuggester {
+
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final int MAX_WORDS = 8;
+
+    private final ProductCatalogScanner catalogScanner;
+    private final BestSellers bestSellers;
+    private final int size;
+    private final int scanLimit;
+    private final int rebuildAfterChanges;
+    private final long maxStalenessMillis;
+    private final long rankingRefreshMillis;
+
+    // the names the next build works from
+    private final Map<Long, String> names = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingChanges = new AtomicInteger();
+    private volatile long oldestPendingChange;
+    private volatile long lastBuilt;
+    private final AtomicBoolean building = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-suggest");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Suggestions suggestions = Suggestions.EMPTY;
+
+    public ProductSuggester(ProductCatalogScanner catalogScanner,
+                            BestSellers bestSellers,
+                            @Value("${product.suggest.size:10}") int size,
+                            @Value("${product.suggest.scan-limit:64}") int scanLimit,
+                            @Value("${product.suggest.rebuild-after-changes:100}") int rebuildAfterChanges,
+                            @Value("${product.suggest.max-staleness-ms:30000}") long maxStalenessMillis,
+                            @Value("${product.suggest.ranking-refresh-ms:600000}") long rankingRefreshMillis) {
+        this.catalogScanner = catalogScanner;
+        this.bestSellers = bestSellers;
+        this.size = size;
+        this.scanLimit = scanLimit;
+        this.rebuildAfterChanges = rebuildAfterChanges;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.rankingRefreshMillis = rankingRefreshMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        catalogScanner.forEach(product -> {
+            if (product.getName() != null) {
+                names.put(product.getProductId(), product.getName());
+            }
+        });
+        // counted as changes already due, so a build started before the scan is followed by one
+        pendingChanges.incrementAndGet();
+        oldestPendingChange = 0;
+        rebuildInBackground();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        int changed = 0;
+        for (Product product : event.saved()) {
+            String previous = product.getName() == null
+                    ? names.remove(product.getProductId())
+                    : names.put(product.getProductId(), product.getName());
+            if (!Objects.equals(product.getName(), previous)) {
+                changed++;
+            }
+        }
+        for (Long productId : event.deleted()) {
+            if (names.remove(productId) != null) {
+                changed++;
+            }
+        }
+        if (changed > 0 && pendingChanges.getAndAdd(changed) == 0) {
+            oldestPendingChange = System.currentTimeMillis();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.suggest.check-interval-ms:1000}")
+    public void rebuildIfStale() {
+        long now = System.currentTimeMillis();
+        int pending = pendingChanges.get();
+        boolean namesStale = pending >= rebuildAfterChanges
+                || (pending > 0 && now - oldestPendingChange >= maxStalenessMillis);
+        // sales move the ranking even when no name changed
+        boolean rankingStale = now - lastBuilt >= rankingRefreshMillis;
+        if (namesStale || rankingStale) {
+            rebuildInBackground();
+        }
+    }
+
+    /**
+     * Up to {@code limit} products whose name has a word starting with {@code prefix}, most
+     * popular first.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        return suggestions.lookup(normalized, Math.min(limit, size), scanLimit);
+    }
+
+    private void rebuildInBackground() {
+        if (building.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("Rebuilding product suggestions failed", e);
+                } finally {
+                    building.set(false);
+                }
+            });
+        }
+    }
+
+    private void rebuild() {
+        pendingChanges.set(0);
+        lastBuilt = System.currentTimeMillis();
+        Map<Long, Integer> sold = bestSellers.quantitiesSold(BestSellers.Window.WEEK);
+        suggestions = Suggestions.build(new HashMap<>(names), sold, size, scanLimit);
+        log.debug("Product suggestions rebuilt: {} products, {} keys",
+                suggestions.productIds().length, suggestions.products().length);
+    }
+
+    static String normalize(String text) {
+        String stripped = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return NON_ALPHANUMERIC.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    public record Suggestion(Long productId, String name) {
+    }
+
+    /**
+     * Product indexes are ranks. Key {@code i} is the suffix of {@code normalized[products[i]]}
+     * starting at {@code offsets[i]}.
+     */
+    record Suggestions(String[] normalized,
+                       int[] products,
+                       int[] offsets,
+                       long[] productIds,
+                       String[] names,
+                       Map<String, int[]> top) {
+
+        static final Suggestions EMPTY = new Suggestions(new String[0], new int[0], new int[0], new long[0], new String[0], Map.of());
+
+        static Suggestions build(Map<Long, String> current, Map<Long, Integer> sold, int size, int scanLimit) {
+            // products ranked once, so a product index is also its rank
+            Long[] ranked = current.keySet().toArray(new Long[0]);
+            Arrays.sort(ranked, (a, b) -> {
+                int bySales = Integer.compare(sold.getOrDefault(b, 0), sold.getOrDefault(a, 0));
+                return bySales != 0 ? bySales : Long.compare(b, a);
+            });
+            long[] productIds = new long[ranked.length];
+            String[] names = new String[ranked.length];
+            String[] normalized = new String[ranked.length];
+            List<Key> keys = new ArrayList<>();
+            for (int product = 0; product < ranked.length; product++) {
+                productIds[product] = ranked[product];
+                names[product] = current.get(ranked[product]);
+                String name = normalize(names[product]);
+                normalized[product] = name;
+                int start = 0;
+                for (int word = 0; word < MAX_WORDS && !name.isEmpty(); word++) {
+                    keys.add(new Key(product, start));
+                    int space = name.indexOf(' ', start);
+                    if (space < 0) {
+                        break;
+                    }
+                    start = space + 1;
+                }
+            }
+            keys.sort((a, b) -> {
+                int byText = compare(normalized[a.product()], a.offset(), normalized[b.product()], b.offset());
+                return byText != 0 ? byText : Integer.compare(a.product(), b.product());
+            });
+            int[] products = new int[keys.size()];
+            int[] offsets = new int[keys.size()];
+            for (int i = 0; i < products.length; i++) {
+                products[i] = keys.get(i).product();
+                offsets[i] = keys.get(i).offset();
+            }
+            return new Suggestions(normalized, products, offsets, productIds, names,
+                    precompute(normalized, products, offsets, size, scanLimit));
+        }
+
+        List<Suggestion> lookup(String prefix, int limit, int scanLimit) {
+            int[] best = top.get(prefix);
+            if (best == null) {
+                int from = lowerBound(prefix);
+                int to = lowerBound(prefix + Character.MAX_VALUE);
+                // a range wider than the scan limit always has its prefix precomputed
+                best = best(products, from, Math.min(to, from + scanLimit), limit);
+            }
+            List<Suggestion> result = new ArrayList<>(Math.min(limit, best.length));
+            for (int i = 0; i < best.length && i < limit; i++) {
+                result.add(new Suggestion(productIds[best[i]], names[best[i]]));
+            }
+            return result;
+        }
+
+        /**
+         * Best products of every prefix whose key range is too wide to scan at lookup time. A
+         * range only gets wider as its prefix gets shorter, so the prefixes of each length are
+         * walked as runs over the sorted keys and deeper lengths stop once no run is wide enough.
+         */
+        private static Map<String, int[]> precompute(String[] normalized, int[] products, int[] offsets,
+                                                     int size, int scanLimit) {
+            Map<String, int[]> top = new HashMap<>();
+            for (int length = 1; ; length++) {
+                boolean wide = false;
+                int i = 0;
+                while (i < products.length) {
+                    String name = normalized[products[i]];
+                    if (name.length() - offsets[i] < length) {
+                        i++;
+                        continue;
+                    }
+                    String prefix = name.substring(offsets[i], offsets[i] + length);
+                    int end = i + 1;
+                    while (end < products.length && normalized[products[end]].startsWith(prefix, offsets[end])) {
+                        end++;
+                    }
+                    if (end - i > scanLimit) {
+                        top.put(prefix, best(products, i, end, size));
+                        wide = true;
+                    }
+                    i = end;
+                }
+                if (!wide) {
+                    return top;
+                }
+            }
+        }
+
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = products.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(normalized[products[middle]], offsets[middle], key, 0) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * The {@code limit} best distinct products of a key range. Product indexes are ranks, so
+         * the best product is the smallest index.
+         */
+        static int[] best(int[] products, int from, int to, int limit) {
+            int[] best = new int[limit];
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                int product = products[i];
+                int position = Arrays.binarySearch(best, 0, count, product);
+                if (position >= 0) {
+                    continue;
+                }
+                position = -position - 1;
+                if (position >= limit) {
+                    continue;
+                }
+                int moved = Math.min(count, limit - 1) - position;
+                System.arraycopy(best, position, best, position + 1, moved);
+                best[position] = product;
+                count = Math.min(count + 1, limit);
+            }
+            return Arrays.copyOf(best, count);
+        }
+
+        // String.compareTo of a.substring(aFrom) and b.substring(bFrom), without the copies
+        private static int compare(String a, int aFrom, String b, int bFrom) {
+            int length = Math.min(a.length() - aFrom, b.length() - bFrom);
+            for (int i = 0; i < length; i++) {
+                char x = a.charAt(aFrom + i);
+                char y = b.charAt(bFrom + i);
+                if (x != y) {
+                    return x - y;
+                }
+            }
+            return (a.length() - aFrom) - (b.length() - bFrom);
+        }
+    }
+
+    private record Key(int product, int offset) {
+    }
+}
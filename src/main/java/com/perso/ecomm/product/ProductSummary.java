@@ -0,0 +1,34 @@
+package com.perso.ecomm.product;
+
+import java.util.Date;
+
+/**
+ * Column set returned by product listings.
+ * <p>
+ * Repository methods returning this projection select these columns only: no {@link Product}
+ * entity is hydrated, nothing enters the persistence context and the category is never joined.
+ * It serializes to the same JSON as a {@link Product}, whose category is not exposed either.
+ * The detail endpoint keeps returning the full entity.
+ */
+public interface ProductSummary {
+
+    Long getProductId();
+
+    String getName();
+
+    String getDescription();
+
+    double getPriceAfterDiscount();
+
+    double getPriceBeforeDiscount();
+
+    double getDiscountPercent();
+
+    int getStockQuantity();
+
+    String getImageUrl();
+
+    Date getCreationDate();
+
+    Date getLastUpdate();
+}
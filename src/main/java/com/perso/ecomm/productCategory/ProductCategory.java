@@ -31,6 +31,10 @@ public class ProductCategory {
     @NotNull(message = "Name cannot be blank")
     private String categoryName;
 
+    // maintained by ProductService / ProductCategoryRepository.adjustProductCount, never written from the entity
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long productCount;
+
     public ProductCategory() {
 
     }
@@ -0,0 +1,7 @@
+package com.perso.ecomm.productCategory;
+
+/**
+ * Published when a category is created, renamed or deleted.
+ */
+public record ProductCategoryChangedEvent(Long categoryId) {
+}
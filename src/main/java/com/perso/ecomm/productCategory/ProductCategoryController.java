@@ -1,17 +1,25 @@
 package com.perso.ecomm.productCategory;
 
 import com.perso.ecomm.exception.RequestValidationException;
+import com.perso.ecomm.playLoad.response.CursorPageResponse;
+import com.perso.ecomm.product.CatalogResponseCache;
+import com.perso.ecomm.product.CatalogVersions;
+import com.perso.ecomm.util.KeysetCursor;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,14 +29,27 @@ import java.util.Map;
 @CrossOrigin(origins = "http://localhost:4200")
 public class ProductCategoryController {
     private final ProductCategoryService productCategoryService;
+    private final CatalogVersions catalogVersions;
+    private final CatalogResponseCache catalogResponseCache;
 
-    public ProductCategoryController(ProductCategoryService productCategoryService) {
+    public ProductCategoryController(ProductCategoryService productCategoryService, CatalogVersions catalogVersions, CatalogResponseCache catalogResponseCache) {
         this.productCategoryService = productCategoryService;
+        this.catalogVersions = catalogVersions;
+        this.catalogResponseCache = catalogResponseCache;
     }
 
+    // categories embed their products, so both collections make up the tag
     @GetMapping
-    public List<ProductCategory> getCategories() {
-        return productCategoryService.getAllCategories();
+    public void getCategories(ServletWebRequest request) throws IOException {
+        catalogResponseCache.serve(request, "product_category", productCategoryService::getAllCategories,
+                CatalogVersions.Collection.CATEGORIES, CatalogVersions.Collection.PRODUCTS);
+    }
+
+    // category menu: id, name and product count
+    @GetMapping("/summary")
+    public void getCategorySummaries(ServletWebRequest request) throws IOException {
+        catalogResponseCache.serve(request, "product_category/summary", productCategoryService::getCategorySummaries,
+                CatalogVersions.Collection.CATEGORIES, CatalogVersions.Collection.PRODUCTS);
     }
 
     @CrossOrigin(origins = "http://localhost:4200")
@@ -37,10 +58,28 @@ public class ProductCategoryController {
             @RequestParam(name = "page", defaultValue = "0") int page,
             @RequestParam(name = "size", defaultValue = "5") int size,
             @RequestParam(name = "sortField", defaultValue = "categoryId") String sortField,
-            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder) {
+            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder,
+            @RequestParam(name = "approximateTotal", defaultValue = "false") boolean approximateTotal,
+            WebRequest request) {
+        if (catalogVersions.checkNotModified(request, CatalogVersions.Collection.CATEGORIES, CatalogVersions.Collection.PRODUCTS)) {
+            return null;
+        }
         Sort.Direction direction = sortOrder.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, direction, sortField);
-        return productCategoryService.getSortedAndPagedData(pageable);
+        return productCategoryService.getSortedAndPagedData(pageable, approximateTotal);
+    }
+
+    // get categories page after page, following the cursor of the previous page
+    @GetMapping("/paginate/cursor")
+    public CursorPageResponse<ProductCategory> scrollCategories(
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "size", defaultValue = "5") int size,
+            @RequestParam(name = "sortField", defaultValue = "categoryId") String sortField,
+            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder) {
+        Sort.Direction direction = sortOrder.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        KeysetCursor.Cursor cursor = KeysetCursor.decode(after, ProductCategory.class, Sort.by(direction, sortField));
+        Window<ProductCategory> window = productCategoryService.getScrolledData(cursor.position(), cursor.sort(), size);
+        return CursorPageResponse.of(window, cursor.sort());
     }
 
     @PostMapping
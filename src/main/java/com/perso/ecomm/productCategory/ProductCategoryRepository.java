@@ -1,8 +1,21 @@
 package com.perso.ecomm.productCategory;
 
+import com.perso.ecomm.playLoad.response.CategorySummary;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +26,24 @@ public interface ProductCategoryRepository extends JpaRepository<ProductCategory
 
     Optional<ProductCategory> findProductCategoriesByCategoryId(Long id);
 
+    List<ProductCategory> findByCategoryNameIn(Collection<String> categoryNames);
+
+    @Query("SELECT new com.perso.ecomm.playLoad.response.CategorySummary(c.categoryId, c.categoryName, c.productCount) " +
+            "FROM ProductCategory c ORDER BY c.categoryName")
+    List<CategorySummary> findSummaries();
+
+    @Modifying
+    @Query(value = "UPDATE product_category SET product_count = product_count + :delta WHERE category_id = :categoryId", nativeQuery = true)
+    int adjustProductCount(@Param("categoryId") Long categoryId, @Param("delta") long delta);
+
+    // recount from scratch, for counts written before they were maintained or by hand
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE product_category c SET c.product_count = " +
+            "(SELECT COUNT(*) FROM product p WHERE p.category_id = c.category_id)", nativeQuery = true)
+    int reconcileProductCounts();
+
+    Slice<ProductCategory> findAllBy(Pageable pageable);
+
+    Window<ProductCategory> findAllBy(ScrollPosition position, Sort sort, Limit limit);
 }
@@ -1,10 +1,23 @@
 package com.perso.ecomm.productCategory;
 
 import com.perso.ecomm.exception.ResourceNotFoundException;
+import com.perso.ecomm.playLoad.response.CategorySummary;
+import com.perso.ecomm.product.Product;
+import com.perso.ecomm.product.ProductChangedEvent;
+import com.perso.ecomm.util.ApproximateCounter;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -12,30 +25,52 @@ import java.util.List;
 @Service
 public class ProductCategoryService {
     private final ProductCategoryRepository productCategoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ApproximateCounter approximateCounter;
 
-    public ProductCategoryService(ProductCategoryRepository productCategoryRepository) {
+    public ProductCategoryService(ProductCategoryRepository productCategoryRepository, ApplicationEventPublisher eventPublisher, ApproximateCounter approximateCounter) {
         this.productCategoryRepository = productCategoryRepository;
+        this.eventPublisher = eventPublisher;
+        this.approximateCounter = approximateCounter;
     }
 
     public List<ProductCategory> getAllCategories() {
         return productCategoryRepository.findAll();
     }
 
+    // id, name and product count only, without touching the product table
+    public List<CategorySummary> getCategorySummaries() {
+        return productCategoryRepository.findSummaries();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileProductCounts() {
+        productCategoryRepository.reconcileProductCounts();
+    }
 
+
+    @Transactional
     public ProductCategory addNewCategory(ProductCategory productCategory) {
         boolean isExist = productCategoryRepository.existsProductCategoryByCategoryName(productCategory.getCategoryName());
         if (isExist){
            throw new ResourceNotFoundException("Product Category Name already exist : " + productCategory.getCategoryName());
         }
-        return productCategoryRepository.save(productCategory);
+        ProductCategory saved = productCategoryRepository.save(productCategory);
+        eventPublisher.publishEvent(new ProductCategoryChangedEvent(saved.getCategoryId()));
+        return saved;
     }
 
+    @Transactional
     public void deleteCategory(Long categoryId) {
 
         ProductCategory category = productCategoryRepository.findProductCategoriesByCategoryId(categoryId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product category with ID " + categoryId + " not found"));
 
+        // products are removed along with their category (cascade), keep product views in sync
+        List<Long> productIds = category.getProduct().stream().map(Product::getProductId).toList();
         productCategoryRepository.delete(category);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(productIds));
+        eventPublisher.publishEvent(new ProductCategoryChangedEvent(categoryId));
     }
 
     @Transactional
@@ -47,10 +82,20 @@ public class ProductCategoryService {
             throw new ResourceNotFoundException("Product Category Name already exist : " + productCategory.getCategoryName());
         }
         productCategory.setCategoryName(updatedCategory.getCategoryName());
+        eventPublisher.publishEvent(new ProductCategoryChangedEvent(categoryId));
         return productCategory;
     }
 
-    public Page<ProductCategory> getSortedAndPagedData(Pageable pageable) {
-        return productCategoryRepository.findAll(pageable);
+    public Page<ProductCategory> getSortedAndPagedData(Pageable pageable, boolean approximateTotal) {
+        if (!approximateTotal) {
+            return productCategoryRepository.findAll(pageable);
+        }
+        Slice<ProductCategory> slice = productCategoryRepository.findAllBy(pageable);
+        long total = approximateCounter.count("category", productCategoryRepository::count);
+        return new PageImpl<>(slice.getContent(), pageable, total);
+    }
+
+    public Window<ProductCategory> getScrolledData(ScrollPosition position, Sort sort, int size) {
+        return productCategoryRepository.findAllBy(position, sort, Limit.of(size));
     }
 }
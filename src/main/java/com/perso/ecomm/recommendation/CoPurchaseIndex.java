@@ -0,0 +1,213 @@
+package com.perso.ecomm.recommendation;
+
+import com.perso.ecomm.orders.order.OrderPlacedEvent;
+import com.perso.ecomm.orders.order.OrderRepository;
+import com.perso.ecomm.orders.orderItem.OrderItemRepository;
+import com.perso.ecomm.orders.orderItem.OrderLine;
+import com.perso.ecomm.product.ProductChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * "Frequently bought together": how often two products were ordered together.
+ * <p>
+ * The product-pair count matrix is kept sparse, one row per product holding its co-purchased
+ * products in a sorted {@code long[]} with a parallel {@code int[]} of counts. A row tracks at most
+ * {@code product.related.max-tracked} neighbours; past that the less frequent half is dropped, so
+ * rarely co-purchased products give way to new ones and a row never grows unbounded. The counts
+ * of long-lived pairs stay exact, the tail is approximate.
+ * <p>
+ * Every row also holds its top {@code product.related.size} neighbours as a prebuilt array, swapped
+ * in after each update, so a read is a map lookup and an array copy.
+ * <p>
+ * Built at startup from the existing order items and kept current from {@link OrderPlacedEvent}s.
+ */
+@Slf4j
+@Component
+public class CoPurchaseIndex {
+
+    private static final long[] NONE = new long[0];
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int topSize;
+    private final int maxTracked;
+    private final int maxBasket;
+
+    private final Map<Long, Row> rows = new ConcurrentHashMap<>();
+    // orders up to this id are counted by the backfill, later ones by events
+    private volatile long backfilledThrough = Long.MAX_VALUE;
+
+    public CoPurchaseIndex(OrderRepository orderRepository,
+                           OrderItemRepository orderItemRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${product.related.size:10}") int topSize,
+                           @Value("${product.related.max-tracked:200}") int maxTracked,
+                           @Value("${product.related.max-basket:50}") int maxBasket) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.topSize = topSize;
+        this.maxTracked = Math.max(maxTracked, 2 * topSize);
+        this.maxBasket = maxBasket;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long maxOrderId = orderRepository.findMaxOrderId();
+        backfilledThrough = maxOrderId;
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<OrderLine> lines = orderItemRepository.streamLinesUpTo(maxOrderId)) {
+                Iterator<OrderLine> iterator = lines.iterator();
+                Set<Long> basket = new LinkedHashSet<>();
+                long orderId = -1;
+                while (iterator.hasNext()) {
+                    OrderLine line = iterator.next();
+                    if (line.getOrderId() != orderId) {
+                        count(basket, false);
+                        basket.clear();
+                        orderId = line.getOrderId();
+                    }
+                    basket.add(line.getProductId());
+                }
+                count(basket, false);
+            }
+        });
+        rows.values().forEach(row -> {
+            synchronized (row) {
+                row.refreshTop(topSize);
+            }
+        });
+        log.info("Co-purchase index built from orders up to {}: {} products", maxOrderId, rows.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        if (event.orderId() <= backfilledThrough) {
+            return;
+        }
+        Set<Long> basket = new LinkedHashSet<>();
+        event.lines().forEach(line -> basket.add(line.productId()));
+        count(basket, true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // rows of other products keep pointing at it; readers drop ids that no longer resolve
+        event.deleted().forEach(rows::remove);
+    }
+
+    /**
+     * Products most often ordered together with {@code productId}, most frequent first.
+     */
+    public List<Long> related(Long productId, int limit) {
+        Row row = rows.get(productId);
+        long[] top = row == null ? NONE : row.top;
+        return Arrays.stream(top, 0, Math.min(limit, top.length)).boxed().toList();
+    }
+
+    private void count(Collection<Long> basket, boolean refresh) {
+        // very large orders are bulk purchases and say little about what goes together
+        if (basket.size() < 2 || basket.size() > maxBasket) {
+            return;
+        }
+        long[] products = basket.stream().mapToLong(Long::longValue).toArray();
+        for (long product : products) {
+            Row row = rows.computeIfAbsent(product, id -> new Row());
+            synchronized (row) {
+                for (long other : products) {
+                    if (other != product) {
+                        row.increment(other, maxTracked);
+                    }
+                }
+                if (refresh) {
+                    row.refreshTop(topSize);
+                }
+            }
+        }
+    }
+
+    static final class Row {
+
+        private long[] neighbours = new long[4];
+        private int[] counts = new int[4];
+        private int size;
+        volatile long[] top = NONE;
+
+        void increment(long neighbour, int maxTracked) {
+            int index = Arrays.binarySearch(neighbours, 0, size, neighbour);
+            if (index >= 0) {
+                counts[index]++;
+                return;
+            }
+            if (size == maxTracked) {
+                prune(maxTracked / 2);
+                index = Arrays.binarySearch(neighbours, 0, size, neighbour);
+            }
+            int insertAt = -index - 1;
+            if (size == neighbours.length) {
+                int capacity = Math.min(neighbours.length * 2, maxTracked);
+                neighbours = Arrays.copyOf(neighbours, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+            System.arraycopy(neighbours, insertAt, neighbours, insertAt + 1, size - insertAt);
+            System.arraycopy(counts, insertAt, counts, insertAt + 1, size - insertAt);
+            neighbours[insertAt] = neighbour;
+            counts[insertAt] = 1;
+            size++;
+        }
+
+        // keeps the most frequent neighbours, still sorted by neighbour id
+        private void prune(int keep) {
+            int[] byCount = rankByCount();
+            int[] kept = Arrays.copyOf(byCount, keep);
+            Arrays.sort(kept);
+            for (int i = 0; i < keep; i++) {
+                neighbours[i] = neighbours[kept[i]];
+                counts[i] = counts[kept[i]];
+            }
+            size = keep;
+        }
+
+        void refreshTop(int topSize) {
+            int[] byCount = rankByCount();
+            long[] result = new long[Math.min(topSize, size)];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = neighbours[byCount[i]];
+            }
+            top = result;
+        }
+
+        // positions sorted by count descending; ties go to the lower product id
+        private int[] rankByCount() {
+            long[] packed = new long[size];
+            for (int i = 0; i < size; i++) {
+                packed[i] = ((long) -counts[i] << 32) | i;
+            }
+            Arrays.sort(packed);
+            int[] positions = new int[size];
+            for (int i = 0; i < size; i++) {
+                positions[i] = (int) packed[i];
+            }
+            return positions;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.perso.ecomm.recommendation;
+
+import com.perso.ecomm.product.Product;
+import com.perso.ecomm.product.ProductService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping(path = "product")
+public class RecommendationController {
+
+    private final CoPurchaseIndex coPurchaseIndex;
+    private final ProductService productService;
+
+    public RecommendationController(CoPurchaseIndex coPurchaseIndex, ProductService productService) {
+        this.coPurchaseIndex = coPurchaseIndex;
+        this.productService = productService;
+    }
+
+    // products frequently bought together with this one, most frequent first
+    @GetMapping("/{productId}/related")
+    public List<Product> getRelatedProducts(
+            @PathVariable("productId") Long productId,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return productService.getProductsInOrder(coPurchaseIndex.related(productId, Math.max(limit, 1)));
+    }
+}
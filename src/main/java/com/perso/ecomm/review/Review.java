@@ -12,7 +12,7 @@ import java.time.LocalDate;
 import java.util.Date;
 
 @Entity
-@Table
+@Table(indexes = @Index(name = "idx_review_product_date", columnList = "product_id, review_date"))
 @Getter
 @Setter
 public class Review {
@@ -1,10 +1,12 @@
 package com.perso.ecomm.review;
 
 import com.perso.ecomm.playLoad.request.ReviewRequest;
+import com.perso.ecomm.util.NdjsonResponseWriter;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -13,10 +15,12 @@ import java.util.List;
 public class ReviewController {
 
     final private ReviewService reviewService;
+    final private NdjsonResponseWriter ndjsonResponseWriter;
 
 
-    public ReviewController(ReviewService reviewService) {
+    public ReviewController(ReviewService reviewService, NdjsonResponseWriter ndjsonResponseWriter) {
         this.reviewService = reviewService;
+        this.ndjsonResponseWriter = ndjsonResponseWriter;
     }
 
     @GetMapping
@@ -25,6 +29,11 @@ public class ReviewController {
         return ResponseEntity.ok(reviews);
     }
 
+    @GetMapping(produces = NdjsonResponseWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllReviews() {
+        return ndjsonResponseWriter.stream(reviewService::streamAllReviews);
+    }
+
     @GetMapping("{reviewId}")
     public ResponseEntity<?> getReviewById(@PathVariable Long reviewId) {
             Review review = reviewService.getReviewById(reviewId);
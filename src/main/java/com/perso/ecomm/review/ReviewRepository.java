@@ -1,8 +1,18 @@
 package com.perso.ecomm.review;
 
+import com.perso.ecomm.util.NdjsonResponseWriter;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.stream.Stream;
+
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Long> {
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = NdjsonResponseWriter.FETCH_SIZE))
+    @Query("SELECT r FROM Review r LEFT JOIN FETCH r.product LEFT JOIN FETCH r.user u LEFT JOIN FETCH u.role")
+    Stream<Review> streamAllBy();
 }
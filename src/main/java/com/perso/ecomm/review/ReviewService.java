@@ -10,6 +10,7 @@ import jakarta.persistence.EntityNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 public class ReviewService {
@@ -28,6 +29,10 @@ public class ReviewService {
         return reviewRepository.findAll();
     }
 
+    public Stream<Review> streamAllReviews() {
+        return reviewRepository.streamAllBy();
+    }
+
     public Review getReviewById(Long reviewId) {
         return reviewRepository.findById(reviewId).orElseThrow(
                 () -> new ResourceNotFoundException("review with id:" + reviewId)
@@ -2,6 +2,7 @@ package com.perso.ecomm.security;
 
 import com.perso.ecomm.JWT.JWTAuthenticationFilter;
 import com.perso.ecomm.exception.DelegatedAuthEntryPoint;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -40,6 +41,8 @@ public class SecurityFilterChainConfig {
                 .authorizeHttpRequests(
                         (auth) ->
                                 auth
+                                        // an upload answered off the request thread was authorized when it arrived
+                                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                         .requestMatchers("/images/**").permitAll()
                                         .requestMatchers("/user/**").permitAll()
                                         .requestMatchers("/role/**").permitAll()
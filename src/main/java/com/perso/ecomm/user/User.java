@@ -15,7 +15,8 @@ import lombok.Setter;
                         name = "UniqueEmailAndUsername",
                         columnNames = {"email", "username"}
                 )
-        }
+        },
+        indexes = @Index(name = "idx_users_image_url", columnList = "image_url")
 )
 @Getter
 @Setter
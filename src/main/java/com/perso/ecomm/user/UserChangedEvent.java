@@ -0,0 +1,7 @@
+package com.perso.ecomm.user;
+
+/**
+ * Published when a user is updated, deleted or changes role.
+ */
+public record UserChangedEvent(Long userId) {
+}
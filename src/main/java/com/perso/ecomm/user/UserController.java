@@ -1,17 +1,20 @@
 package com.perso.ecomm.user;
 
-
 import com.perso.ecomm.exception.RequestValidationException;
 import com.perso.ecomm.playLoad.request.LoginRequest;
 import com.perso.ecomm.playLoad.request.SignupRequest;
 import com.perso.ecomm.playLoad.request.UserUpdateRequest;
 import com.perso.ecomm.playLoad.request.changePasswordRequest;
 import com.perso.ecomm.playLoad.response.UserInfoResponse;
+import com.perso.ecomm.playLoad.response.CursorPageResponse;
+import com.perso.ecomm.util.KeysetCursor;
+import com.perso.ecomm.util.NdjsonResponseWriter;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,21 +22,24 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping(path = "user")
 public class UserController {
 
     private final UserService userService;
+    private final NdjsonResponseWriter ndjsonResponseWriter;
 
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, NdjsonResponseWriter ndjsonResponseWriter) {
         this.userService = userService;
+        this.ndjsonResponseWriter = ndjsonResponseWriter;
     }
 
     @GetMapping
@@ -41,16 +47,35 @@ public class UserController {
         return userService.getUsers();
     }
 
+    @GetMapping(produces = NdjsonResponseWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        return ndjsonResponseWriter.stream(userService::streamUsers);
+    }
+
     @CrossOrigin(origins = "http://localhost:4200")
     @GetMapping("/paginate")
     public Page<User> paginateUsers(
             @RequestParam(name = "page", defaultValue = "0") int page,
             @RequestParam(name = "size", defaultValue = "5") int size,
             @RequestParam(name = "sortField", defaultValue = "id") String sortField,
-            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder) {
+            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder,
+            @RequestParam(name = "approximateTotal", defaultValue = "false") boolean approximateTotal) {
         Sort.Direction direction = sortOrder.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, direction, sortField);
-        return userService.getSortedAndPagedData(pageable);
+        return userService.getSortedAndPagedData(pageable, approximateTotal);
+    }
+
+    // get users page after page, following the cursor of the previous page
+    @GetMapping("/paginate/cursor")
+    public CursorPageResponse<User> scrollUsers(
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "size", defaultValue = "5") int size,
+            @RequestParam(name = "sortField", defaultValue = "id") String sortField,
+            @RequestParam(name = "sortOrder", defaultValue = "asc") String sortOrder) {
+        Sort.Direction direction = sortOrder.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        KeysetCursor.Cursor cursor = KeysetCursor.decode(after, User.class, Sort.by(direction, sortField));
+        Window<User> window = userService.getScrolledData(cursor.position(), cursor.sort(), size);
+        return CursorPageResponse.of(window, cursor.sort());
     }
     
     @DeleteMapping(path = "{userId}")
@@ -69,14 +94,13 @@ public class UserController {
     }
 
     @PutMapping(path = "update/{userId}")
-    public ResponseEntity<?> updateUser(@PathVariable("userId") Long userId, @Valid UserUpdateRequest userUpdateRequest, BindingResult result) throws IOException {
+    public CompletableFuture<ResponseEntity<?>> updateUser(@PathVariable("userId") Long userId, @Valid UserUpdateRequest userUpdateRequest, BindingResult result) {
         if (result.hasErrors()) {
             Map<String, String> errors = new HashMap<>();
             result.getFieldErrors().forEach(error -> errors.put(error.getField(), error.getDefaultMessage()));
-            return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST));
         }
-        User user = userService.updateUser(userId, userUpdateRequest);
-        return ResponseEntity.ok().body(user);
+        return userService.updateUser(userId, userUpdateRequest).thenApply(user -> ResponseEntity.ok().body(user));
     }
 
     @PutMapping(path = "password/{userId}")
@@ -95,12 +119,12 @@ public class UserController {
     }
 
     @PutMapping(path = "changeImage/{userId}")
-    public ResponseEntity<?> changePhoto(
+    public CompletableFuture<ResponseEntity<?>> changePhoto(
             @PathVariable Long userId,
             MultipartFile multipartFile
-    ) throws IOException {
-        userService.changePhoto(userId,multipartFile);
-        return ResponseEntity.status(HttpStatus.NO_CONTENT).body("Image updated successfully");
+    ) {
+        return userService.changePhoto(userId, multipartFile)
+                .thenApply(done -> ResponseEntity.status(HttpStatus.NO_CONTENT).body("Image updated successfully"));
     }
 
     //Auth request
@@ -117,15 +141,15 @@ public class UserController {
     }
 
     @PostMapping(path = "signup")
-    public ResponseEntity<?> addNewUser(@Valid SignupRequest signupRequest, BindingResult result) throws IOException {
+    public CompletableFuture<ResponseEntity<?>> addNewUser(@Valid SignupRequest signupRequest, BindingResult result) {
         if (result.hasErrors()) {
             Map<String, String> errors = new HashMap<>();
             result.getFieldErrors().forEach(error -> errors.put(error.getField(), error.getDefaultMessage()));
             throw new RequestValidationException(errors.toString());
         }
-        User user = userService.registerNewUser(signupRequest);
-        return ResponseEntity.ok()
-                .body(user);
+        return userService.registerNewUser(signupRequest)
+                .thenApply(user -> ResponseEntity.ok()
+                        .body(user));
     }
 
     @PostMapping(path = "/signout")
@@ -1,8 +1,21 @@
 package com.perso.ecomm.user;
 
+import com.perso.ecomm.image.ImageUrlCount;
+import com.perso.ecomm.util.NdjsonResponseWriter;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
@@ -12,4 +25,19 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Boolean existsByUsername(String username);
 
+    Slice<User> findAllBy(Pageable pageable);
+
+    Window<User> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    @Query("SELECT u.imageUrl AS imageUrl, COUNT(u) AS referenceCount FROM users u WHERE u.imageUrl IS NOT NULL GROUP BY u.imageUrl")
+    List<ImageUrlCount> countByImageUrl();
+
+    // an equality on the image_url index; content-addressed urls are stored canonical (see ImageStore)
+    long countByImageUrl(String imageUrl);
+
+    List<User> findByImageUrl(String imageUrl);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = NdjsonResponseWriter.FETCH_SIZE))
+    @Query("SELECT u FROM users u LEFT JOIN FETCH u.role")
+    Stream<User> streamAllBy();
 }
@@ -4,6 +4,7 @@ import com.perso.ecomm.CustomUser.CustomUserDetails;
 import com.perso.ecomm.JWT.JWTUtil;
 import com.perso.ecomm.exception.DuplicateResourceException;
 import com.perso.ecomm.exception.ResourceNotFoundException;
+import com.perso.ecomm.image.ImageStore;
 import com.perso.ecomm.playLoad.request.LoginRequest;
 import com.perso.ecomm.playLoad.request.SignupRequest;
 import com.perso.ecomm.playLoad.request.UserUpdateRequest;
@@ -12,29 +13,34 @@ import com.perso.ecomm.playLoad.response.UserInfoResponse;
 import com.perso.ecomm.role.ERole;
 import com.perso.ecomm.role.Role;
 import com.perso.ecomm.role.RoleRepository;
-import com.perso.ecomm.util.FileUploadUtil;
+import com.perso.ecomm.util.ApproximateCounter;
 import io.micrometer.common.util.internal.logging.InternalLogger;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
-import java.util.UUID;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -47,19 +53,25 @@ public class UserService {
     private final UserRepository userRepository;
 
     private final RoleRepository roleRepository;
-
-    final String FOLDER_PATH = "src/main/resources/static/images";
+    private final ApproximateCounter approximateCounter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImageStore imageStore;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${upload.user-path}")
     private String userImagePath;
 
 
-    public UserService(AuthenticationManager authenticationManager, JWTUtil jwtUtil, PasswordEncoder passwordEncoder, UserRepository userRepository, RoleRepository roleRepository) {
+    public UserService(AuthenticationManager authenticationManager, JWTUtil jwtUtil, PasswordEncoder passwordEncoder, UserRepository userRepository, RoleRepository roleRepository, ApproximateCounter approximateCounter, ApplicationEventPublisher eventPublisher, ImageStore imageStore, PlatformTransactionManager transactionManager) {
         this.authenticationManager = authenticationManager;
         this.jwtUtil = jwtUtil;
         this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
+        this.approximateCounter = approximateCounter;
+        this.eventPublisher = eventPublisher;
+        this.imageStore = imageStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
 
@@ -67,20 +79,43 @@ public class UserService {
         return userRepository.findAll();
     }
 
+    public Stream<User> streamUsers() {
+        return userRepository.streamAllBy();
+    }
+
     public User getUserById(Long id) {
         return userRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("There's no user with id:" + id));
     }
 
 
+    @Transactional
     public void deleteUser(Long userId) {
         User user = userRepository.findById(userId).orElseThrow(
                 () -> new ResourceNotFoundException("There's no user with id:" + userId)
         );
         userRepository.delete(user);
+        imageStore.release(user.getImageUrl());
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
     }
 
-    @Transactional
-    public User updateUser(Long userId, UserUpdateRequest request) throws IOException {
+    public CompletableFuture<User> updateUser(Long userId, UserUpdateRequest request) {
+
+        MultipartFile image = request.getImageUrl();
+
+        if (image == null || image.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    transactionTemplate.execute(status -> applyUpdate(userId, request, null)));
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User with id " + userId + " doesn't exist");
+        }
+
+        // new image is written on the upload pool, or shares the stored copy of the same bytes
+        return imageStore.store(userImagePath, image,
+                storedImage -> transactionTemplate.execute(status -> applyUpdate(userId, request, storedImage)));
+    }
+
+    private User applyUpdate(Long userId, UserUpdateRequest request, Path storedImage) {
 
         User user = userRepository.findById(userId)
                 .orElseThrow(() ->
@@ -91,49 +126,17 @@ public class UserService {
         user.setFirstName(request.getFirstName());
         user.setLastName(request.getLastName());
 
-        MultipartFile image = request.getImageUrl();
-
-        if (image != null && !image.isEmpty()) {
-
-            if (!image.getContentType().startsWith("image/")) {
-                throw new IllegalArgumentException("Only image files are allowed");
-            }
-
-            // 1️⃣ Delete old image if not default
-            deleteOldUserImageIfNeeded(user.getImageUrl());
-
-            // 2️⃣ Generate safe filename
-            String extension = StringUtils.getFilenameExtension(image.getOriginalFilename());
-            String fileName = UUID.randomUUID() + "." + extension;
-
-            // 3️⃣ Save new image
-            FileUploadUtil.saveFile(userImagePath, fileName, image);
-
-            // 4️⃣ Update image URL
-            user.setImageUrl("/images/users/" + fileName);
+        if (storedImage != null) {
+            // Old image is deleted after commit once nothing points at it
+            imageStore.release(user.getImageUrl());
+            user.setImageUrl(imageStore.urlOf(storedImage));
         }
 
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
         return user;
     }
 
 
-    private void deleteOldUserImageIfNeeded(String imageUrl) {
-
-        if (imageUrl == null || imageUrl.contains("default-image.png")) {
-            return; // never delete default image
-        }
-
-        try {
-            String fileName = Paths.get(imageUrl).getFileName().toString();
-            Path filePath = Paths.get(userImagePath).resolve(fileName);
-            Files.deleteIfExists(filePath);
-        } catch (IOException e) {
-            // log warning, do NOT fail transaction
-            log.warn("Could not delete old user image: {}", imageUrl);
-        }
-    }
-
-
     @Transactional
     public void changePassword(Long userId, changePasswordRequest passwordRequest) {
         User user = userRepository.findById(userId)
@@ -159,47 +162,50 @@ public class UserService {
         return new UserInfoResponse(token, user);
     }
 
-    public User registerNewUser(SignupRequest signupRequest) throws IOException {
+    public CompletableFuture<User> registerNewUser(SignupRequest signupRequest) {
 
-        if (userRepository.existsByUsername(signupRequest.getUsername())) {
-            throw new DuplicateResourceException("Username already taken");
-        }
-
-        if (userRepository.existsByEmail(signupRequest.getEmail())) {
-            throw new DuplicateResourceException("Email already taken");
-        }
-
-        String imageUrl = "/images/users/default-image.png";
+        checkNotTaken(signupRequest);
 
         MultipartFile image = signupRequest.getImageUrl();
 
-        if (image != null && !image.isEmpty()) {
-
-            if (!image.getContentType().startsWith("image/")) {
-                throw new IllegalArgumentException("Only image files are allowed");
-            }
-
-            String extension = StringUtils.getFilenameExtension(image.getOriginalFilename());
-            String fileName = UUID.randomUUID() + "." + extension;
+        if (image == null || image.isEmpty()) {
+            return CompletableFuture.completedFuture(saveNewUser(signupRequest, "/images/users/default-image.png"));
+        }
 
-            FileUploadUtil.saveFile(userImagePath, fileName, image);
+        return imageStore.store(userImagePath, image,
+                storedImage -> saveNewUser(signupRequest, imageStore.urlOf(storedImage)));
+    }
 
-            imageUrl = "/images/users/" + fileName;
+    private void checkNotTaken(SignupRequest signupRequest) {
+        if (userRepository.existsByUsername(signupRequest.getUsername())) {
+            throw new DuplicateResourceException("Username already taken");
         }
 
-        User user = new User(
-                signupRequest.getEmail(),
-                passwordEncoder.encode(signupRequest.getPassword()),
-                signupRequest.getFirstName(),
-                signupRequest.getLastName(),
-                signupRequest.getUsername(),
-                imageUrl
-        );
-
-        Role role = resolveRole(signupRequest.getRole());
-        user.setRole(role);
+        if (userRepository.existsByEmail(signupRequest.getEmail())) {
+            throw new DuplicateResourceException("Email already taken");
+        }
+    }
 
-        return userRepository.save(user);
+    // the checks are run again in the transaction: the name may have been taken while the image was written
+    private User saveNewUser(SignupRequest signupRequest, String imageUrl) {
+        String password = passwordEncoder.encode(signupRequest.getPassword());
+        return transactionTemplate.execute(status -> {
+            checkNotTaken(signupRequest);
+
+            User user = new User(
+                    signupRequest.getEmail(),
+                    password,
+                    signupRequest.getFirstName(),
+                    signupRequest.getLastName(),
+                    signupRequest.getUsername(),
+                    imageUrl
+            );
+
+            Role role = resolveRole(signupRequest.getRole());
+            user.setRole(role);
+
+            return userRepository.save(user);
+        });
     }
 
     private Role resolveRole(String roleName) {
@@ -219,8 +225,17 @@ public class UserService {
         return "logged out";
     }
 
-    public Page<User> getSortedAndPagedData(Pageable pageable) {
-        return userRepository.findAll(pageable);
+    public Page<User> getSortedAndPagedData(Pageable pageable, boolean approximateTotal) {
+        if (!approximateTotal) {
+            return userRepository.findAll(pageable);
+        }
+        Slice<User> slice = userRepository.findAllBy(pageable);
+        long total = approximateCounter.count("user", userRepository::count);
+        return new PageImpl<>(slice.getContent(), pageable, total);
+    }
+
+    public Window<User> getScrolledData(ScrollPosition position, Sort sort, int size) {
+        return userRepository.findAllBy(position, sort, Limit.of(size));
     }
 
     @Transactional
@@ -240,20 +255,27 @@ public class UserService {
         };
 
         user.setRole(targetRole);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
     }
 
-    public void changePhoto(Long userId, MultipartFile multipartFile) throws IOException {
-
-        User user = userRepository.findById(userId).orElseThrow(
-        );
+    public CompletableFuture<Void> changePhoto(Long userId, MultipartFile multipartFile) {
 
-        String a = "";
-        if (multipartFile != null) {
-            FileUploadUtil.saveFile(FOLDER_PATH, multipartFile.getOriginalFilename(), multipartFile);
-            a = multipartFile.getOriginalFilename();
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("There's no user with id:" + userId);
         }
 
-        user.setImageUrl("http://localhost:8080/images/" + a);
+        if (multipartFile == null || multipartFile.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
 
+        return imageStore.store(userImagePath, multipartFile, storedImage -> transactionTemplate.execute(status -> {
+            User user = userRepository.findById(userId).orElseThrow(
+                    () -> new ResourceNotFoundException("There's no user with id:" + userId)
+            );
+            imageStore.release(user.getImageUrl());
+            user.setImageUrl(imageStore.urlOf(storedImage));
+            eventPublisher.publishEvent(new UserChangedEvent(userId));
+            return null;
+        }));
     }
 }
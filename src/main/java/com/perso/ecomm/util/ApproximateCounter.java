@@ -0,0 +1,37 @@
+package com.perso.ecomm.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches row counts for paginated listings so a page request does not pay for a COUNT(*).
+ * Totals are refreshed at most every {@code pagination.approximate-count.ttl-seconds}.
+ */
+@Component
+public class ApproximateCounter {
+
+    private final long ttlMillis;
+    private final Map<String, Count> counts = new ConcurrentHashMap<>();
+
+    public ApproximateCounter(@Value("${pagination.approximate-count.ttl-seconds:60}") long ttlSeconds) {
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    public long count(String key, LongSupplier counter) {
+        long now = System.currentTimeMillis();
+        Count cached = counts.get(key);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.value();
+        }
+        long value = counter.getAsLong();
+        counts.put(key, new Count(value, now + ttlMillis));
+        return value;
+    }
+
+    private record Count(long value, long expiresAt) {
+    }
+}
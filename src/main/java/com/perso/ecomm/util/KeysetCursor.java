@@ -0,0 +1,119 @@
+package com.perso.ecomm.util;
+
+import com.perso.ecomm.exception.RequestValidationException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opaque cursor for keyset pagination.
+ * <p>
+ * The token carries the sort it was issued for plus the sort key values (and id) of the last
+ * row of the page, so the next page is a seek on an index instead of an OFFSET scan.
+ * Values are typed back against the entity fields when decoding.
+ */
+public final class KeysetCursor {
+
+    private static final String SORT_KEY = "$sort";
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(KeysetScrollPosition position, Sort sort) {
+        StringBuilder token = new StringBuilder();
+        Sort.Order order = sort.iterator().next();
+        append(token, SORT_KEY, order.getProperty() + "," + order.getDirection());
+        position.getKeys().forEach((key, value) -> append(token, key, encodeValue(value)));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decode(String token, Class<?> entityType, Sort defaultSort) {
+        if (token == null || token.isBlank()) {
+            return new Cursor(ScrollPosition.keyset(), defaultSort);
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            Sort sort = defaultSort;
+            Map<String, Object> keys = new LinkedHashMap<>();
+            for (String pair : decoded.split("&")) {
+                int separator = pair.indexOf('=');
+                String key = URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8);
+                String value = URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+                if (SORT_KEY.equals(key)) {
+                    String[] parts = value.split(",");
+                    sort = Sort.by(Sort.Direction.fromString(parts[1]), parts[0]);
+                } else {
+                    keys.put(key, decodeValue(entityType, key, value));
+                }
+            }
+            return new Cursor(ScrollPosition.forward(keys), sort);
+        } catch (RuntimeException e) {
+            throw new RequestValidationException("Invalid pagination cursor");
+        }
+    }
+
+    private static void append(StringBuilder token, String key, String value) {
+        if (!token.isEmpty()) {
+            token.append('&');
+        }
+        token.append(URLEncoder.encode(key, StandardCharsets.UTF_8))
+                .append('=')
+                .append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+    }
+
+    private static String encodeValue(Object value) {
+        if (value instanceof Date date) {
+            return date.toInstant().toString();
+        }
+        if (value instanceof Enum<?> constant) {
+            return constant.name();
+        }
+        return String.valueOf(value);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object decodeValue(Class<?> entityType, String key, String value) {
+        Field field = ReflectionUtils.findField(entityType, key);
+        if (field == null) {
+            throw new IllegalArgumentException("Unknown cursor key " + key);
+        }
+        Class<?> type = field.getType();
+        if (type == Long.class || type == long.class) {
+            return Long.valueOf(value);
+        }
+        if (type == Integer.class || type == int.class) {
+            return Integer.valueOf(value);
+        }
+        if (type == Double.class || type == double.class) {
+            return Double.valueOf(value);
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return Boolean.valueOf(value);
+        }
+        if (Date.class.isAssignableFrom(type)) {
+            return Timestamp.from(Instant.parse(value));
+        }
+        if (type.isEnum()) {
+            return Enum.valueOf((Class<Enum>) type, value);
+        }
+        if (type == String.class) {
+            return value;
+        }
+        throw new IllegalArgumentException("Unsupported cursor key type " + type);
+    }
+
+    public record Cursor(KeysetScrollPosition position, Sort sort) {
+    }
+}
@@ -0,0 +1,82 @@
+package com.perso.ecomm.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes repository streams as newline delimited JSON.
+ * <p>
+ * Rows are read inside a read-only transaction on the response thread, serialized one by one
+ * and the persistence context is cleared every {@code streaming.flush-every} rows, so memory
+ * stays flat whatever the table size. Repository stream queries should set {@link #FETCH_SIZE},
+ * which tells MySQL Connector/J to hand rows over one at a time instead of buffering the whole
+ * result set. The connection cannot run another statement until such a stream is closed, so
+ * these queries fetch every association their rows are serialized with.
+ */
+@Component
+public class NdjsonResponseWriter {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    // Integer.MIN_VALUE, Connector/J's row by row streaming mode
+    public static final String FETCH_SIZE = "" + Integer.MIN_VALUE;
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+    private final ObjectWriter objectWriter;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int flushEvery;
+
+    public NdjsonResponseWriter(ObjectMapper objectMapper,
+                                EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${streaming.flush-every:500}") int flushEvery) {
+        this.objectWriter = objectMapper.writer();
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.flushEvery = flushEvery;
+    }
+
+    public <T> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<T>> rows) {
+        StreamingResponseBody body = out -> transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<T> stream = rows.get()) {
+                write(stream.iterator(), out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    private <T> void write(Iterator<T> rows, OutputStream out) throws IOException {
+        int written = 0;
+        while (rows.hasNext()) {
+            out.write(objectWriter.writeValueAsBytes(rows.next()));
+            out.write('\n');
+            if (++written == 1) {
+                // let the client start reading before the rest of the result set arrives
+                out.flush();
+            } else if (written % flushEvery == 0) {
+                out.flush();
+                entityManager.clear();
+            }
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,86 @@
+package com.perso.ecomm.bestseller;
+
+import com.perso.ecomm.orders.order.OrderPlacedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BestSellersTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    private BestSellers bestSellers;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        bestSellers = new BestSellers(null, null, null, 10);
+        now = System.currentTimeMillis();
+    }
+
+    @Test
+    void saleLeavesEachWindowOnceItsBucketExpires() {
+        sell(1L, 7L, 2, now - 30 * MINUTE);
+        sell(2L, null, 5, now - 2 * HOUR);
+
+        assertThat(bestSellers.top(BestSellers.Window.HOUR, null, 10)).containsExactly(seller(1L, 2));
+        assertThat(bestSellers.top(BestSellers.Window.DAY, null, 10)).containsExactly(seller(2L, 5), seller(1L, 2));
+        assertThat(bestSellers.top(BestSellers.Window.DAY, 7L, 10)).containsExactly(seller(1L, 2));
+
+        bestSellers.tick(now + 31 * MINUTE);
+        assertThat(bestSellers.top(BestSellers.Window.HOUR, null, 10)).isEmpty();
+        assertThat(bestSellers.top(BestSellers.Window.DAY, null, 10)).containsExactly(seller(2L, 5), seller(1L, 2));
+
+        bestSellers.tick(now + 22 * HOUR);
+        assertThat(bestSellers.top(BestSellers.Window.DAY, null, 10)).containsExactly(seller(1L, 2));
+        assertThat(bestSellers.top(BestSellers.Window.WEEK, null, 10)).containsExactly(seller(2L, 5), seller(1L, 2));
+
+        bestSellers.tick(now + 7 * DAY);
+        assertThat(bestSellers.top(BestSellers.Window.WEEK, null, 10)).isEmpty();
+        assertThat(bestSellers.top(BestSellers.Window.WEEK, 7L, 10)).isEmpty();
+        assertThat(bestSellers.quantitiesSold(BestSellers.Window.WEEK)).isEmpty();
+    }
+
+    @Test
+    void salesOlderThanTheWidestWindowAreNotCounted() {
+        sell(1L, 7L, 3, now - 8 * DAY);
+
+        assertThat(bestSellers.quantitiesSold(BestSellers.Window.WEEK)).isEmpty();
+    }
+
+    @Test
+    void cancellationTakesBackOnlyWhatItsBucketStillHolds() {
+        sell(1L, 7L, 4, now - 2 * HOUR);
+        sell(2L, 7L, 3, now - 2 * HOUR);
+
+        bestSellers.record(List.of(new OrderPlacedEvent.Line(1L, 7L, 6)), now - 2 * HOUR, -1, true);
+
+        assertThat(bestSellers.quantitiesSold(BestSellers.Window.DAY)).containsOnlyKeys(2L);
+        assertThat(bestSellers.top(BestSellers.Window.WEEK, 7L, 10)).containsExactly(seller(2L, 3));
+    }
+
+    @Test
+    void cancellationOfAnExpiredSaleLeavesTheTotalsAlone() {
+        sell(1L, 7L, 4, now - 2 * HOUR);
+        sell(1L, 7L, 1, now - 10 * MINUTE);
+
+        bestSellers.tick(now + 22 * HOUR);
+        bestSellers.record(List.of(new OrderPlacedEvent.Line(1L, 7L, 4)), now - 2 * HOUR, -1, true);
+
+        assertThat(bestSellers.top(BestSellers.Window.DAY, null, 10)).containsExactly(seller(1L, 1));
+        assertThat(bestSellers.top(BestSellers.Window.WEEK, null, 10)).containsExactly(seller(1L, 1));
+    }
+
+    private void sell(Long productId, Long categoryId, int quantity, long placedAt) {
+        bestSellers.record(List.of(new OrderPlacedEvent.Line(productId, categoryId, quantity)), placedAt, 1, true);
+    }
+
+    private static BestSellers.Seller seller(Long productId, int quantity) {
+        return new BestSellers.Seller(productId, quantity);
+    }
+}
@@ -0,0 +1,146 @@
+package com.perso.ecomm.image;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageByteCacheTest {
+
+    private static final int BLOCK = 16 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void servesAFileSpanningSeveralBlocks() throws Exception {
+        ImageByteCache cache = new ImageByteCache(4 * BLOCK, 4 * BLOCK);
+        byte[] content = content(2 * BLOCK + 100, 1);
+        Path file = write("a.jpg", content);
+
+        try (ImageByteCache.CachedFile cached = open(cache, file)) {
+            assertThat(cached.length()).isEqualTo(content.length);
+            assertThat(transfer(cached, BLOCK - 10, BLOCK + 20))
+                    .isEqualTo(Arrays.copyOfRange(content, BLOCK - 10, 2 * BLOCK + 10));
+        }
+        try (ImageByteCache.CachedFile cached = open(cache, file); InputStream input = cached.inputStream()) {
+            assertThat(input.readAllBytes()).isEqualTo(content);
+        }
+
+        ImageByteCache.Stats stats = cache.stats();
+        assertThat(stats.misses()).isEqualTo(1);
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.residentBytes()).isEqualTo(content.length);
+        assertThat(stats.allocatedBytes()).isEqualTo(3L * BLOCK);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedFileAndReusesItsBlocks() throws Exception {
+        ImageByteCache cache = new ImageByteCache(4 * BLOCK, 4 * BLOCK);
+        Path a = write("a.jpg", content(BLOCK + 1, 1));
+        Path b = write("b.jpg", content(BLOCK + 1, 2));
+        byte[] cContent = content(BLOCK + 1, 3);
+        Path c = write("c.jpg", cContent);
+
+        open(cache, a).close();
+        open(cache, b).close();
+        open(cache, a).close();
+        try (ImageByteCache.CachedFile cached = open(cache, c)) {
+            assertThat(transfer(cached, 0, cContent.length)).isEqualTo(cContent);
+        }
+
+        ImageByteCache.Stats stats = cache.stats();
+        assertThat(stats.evictions()).isEqualTo(1);
+        assertThat(stats.entries()).isEqualTo(2);
+        assertThat(stats.allocatedBytes()).isEqualTo(4L * BLOCK);
+        // a stayed, b went
+        open(cache, a).close();
+        open(cache, b).close();
+        assertThat(cache.stats().hits()).isEqualTo(2);
+        assertThat(cache.stats().misses()).isEqualTo(4);
+    }
+
+    @Test
+    void keepsTheBlocksOfAnEvictedFileUntilItsLastReaderCloses() throws Exception {
+        ImageByteCache cache = new ImageByteCache(2 * BLOCK, 2 * BLOCK);
+        byte[] aContent = content(2 * BLOCK, 1);
+        Path a = write("a.jpg", aContent);
+        Path b = write("b.jpg", content(2 * BLOCK, 2));
+
+        ImageByteCache.CachedFile first = open(cache, a);
+        ImageByteCache.CachedFile second = open(cache, a);
+        cache.invalidate(a);
+
+        // every block is pinned by the readers of a, so b is sent from disk
+        assertThat(open(cache, b)).isNull();
+        assertThat(transfer(first, 0, aContent.length)).isEqualTo(aContent);
+
+        first.close();
+        first.close();
+        assertThat(open(cache, b)).isNull();
+        assertThat(cache.stats().allocatedBytes()).isEqualTo(2L * BLOCK);
+
+        second.close();
+        assertThat(cache.stats().allocatedBytes()).isZero();
+        try (ImageByteCache.CachedFile cached = open(cache, b)) {
+            assertThat(cached).isNotNull();
+        }
+    }
+
+    @Test
+    void reloadsAFileThatChangedOnDisk() throws Exception {
+        ImageByteCache cache = new ImageByteCache(4 * BLOCK, 4 * BLOCK);
+        Path file = write("a.jpg", content(100, 1));
+        open(cache, file).close();
+
+        byte[] replaced = content(100, 2);
+        Files.write(file, replaced);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+
+        try (ImageByteCache.CachedFile cached = open(cache, file)) {
+            assertThat(transfer(cached, 0, replaced.length)).isEqualTo(replaced);
+        }
+        assertThat(cache.stats().misses()).isEqualTo(2);
+        assertThat(cache.stats().entries()).isEqualTo(1);
+        assertThat(cache.stats().allocatedBytes()).isEqualTo(BLOCK);
+    }
+
+    @Test
+    void doesNotCacheEmptyOrOversizedFiles() throws Exception {
+        ImageByteCache cache = new ImageByteCache(4 * BLOCK, BLOCK);
+
+        assertThat(open(cache, write("empty.jpg", new byte[0]))).isNull();
+        assertThat(open(cache, write("large.jpg", content(BLOCK + 1, 1)))).isNull();
+        assertThat(cache.stats().allocatedBytes()).isZero();
+    }
+
+    private Path write(String name, byte[] content) throws Exception {
+        return Files.write(directory.resolve(name), content);
+    }
+
+    private static ImageByteCache.CachedFile open(ImageByteCache cache, Path file) throws Exception {
+        return cache.open(file, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+    }
+
+    private static byte[] transfer(ImageByteCache.CachedFile cached, long position, long count) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cached.transferTo(position, count, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static byte[] content(int length, int seed) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (i * 31 + seed);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,162 @@
+package com.perso.ecomm.image;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageFileSenderTest {
+
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private final ImageFileSender sender = new ImageFileSender(49152, new ImageByteCache(1 << 20, 1 << 20));
+    private Path file;
+
+    @BeforeEach
+    void writeFile() throws Exception {
+        file = directory.resolve("image.jpg");
+        Files.writeString(file, "0123456789", StandardCharsets.US_ASCII);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(LAST_MODIFIED));
+    }
+
+    @Test
+    void sendsTheWholeFileWithoutARange() throws Exception {
+        MockHttpServletResponse response = send(get());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getContentType()).isEqualTo("image/jpeg");
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void sendsASingleRange() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+        assertThat(response.getContentLengthLong()).isEqualTo(4);
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+    }
+
+    @Test
+    void sendsASuffixRange() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 7-9/10");
+        assertThat(response.getContentAsString()).isEqualTo("789");
+    }
+
+    @Test
+    void rejectsARangePastTheEnd() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-30");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void sendsTheWholeFileForSeveralRangesOrAMalformedOne() throws Exception {
+        for (String range : new String[]{"bytes=0-1,4-5", "items=0-1"}) {
+            MockHttpServletRequest request = get();
+            request.addHeader(HttpHeaders.RANGE, range);
+
+            MockHttpServletResponse response = send(request);
+
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getContentAsString()).isEqualTo("0123456789");
+        }
+    }
+
+    @Test
+    void sendsTheRangeWhenIfRangeMatches() throws Exception {
+        String etag = send(get()).getHeader(HttpHeaders.ETAG);
+        MockHttpServletRequest byTag = get();
+        byTag.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+        byTag.addHeader(HttpHeaders.IF_RANGE, etag);
+        MockHttpServletRequest byDate = get();
+        byDate.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+        byDate.addHeader(HttpHeaders.IF_RANGE, LAST_MODIFIED);
+
+        assertThat(send(byTag).getContentAsString()).isEqualTo("01");
+        assertThat(send(byDate).getContentAsString()).isEqualTo("01");
+    }
+
+    @Test
+    void sendsTheWholeFileWhenIfRangeIsStale() throws Exception {
+        MockHttpServletRequest byTag = get();
+        byTag.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+        byTag.addHeader(HttpHeaders.IF_RANGE, "\"old\"");
+        MockHttpServletRequest byDate = get();
+        byDate.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+        byDate.addHeader(HttpHeaders.IF_RANGE, LAST_MODIFIED - 60_000);
+
+        for (MockHttpServletRequest request : new MockHttpServletRequest[]{byTag, byDate}) {
+            MockHttpServletResponse response = send(request);
+
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+            assertThat(response.getContentAsString()).isEqualTo("0123456789");
+        }
+    }
+
+    @Test
+    void answersAMatchingIfNoneMatchWithNotModified() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, send(get()).getHeader(HttpHeaders.ETAG));
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void handsLargeFilesToSendfile() throws Exception {
+        ImageFileSender sendfileSender = new ImageFileSender(4, new ImageByteCache(1 << 20, 1 << 20));
+        MockHttpServletRequest request = get();
+        request.setAttribute("org.apache.tomcat.sendfile.support", true);
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sendfileSender.send(file, request, response);
+
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isEqualTo(file.toAbsolutePath().toString());
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(2L);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(6L);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    private MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/images/image.jpg");
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        sender.send(file, request, response);
+        return response;
+    }
+}
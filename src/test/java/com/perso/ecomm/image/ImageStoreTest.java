@@ -0,0 +1,82 @@
+package com.perso.ecomm.image;
+
+import com.perso.ecomm.exception.RequestValidationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImageStoreTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 13, 'I', 'H', 'D', 'R', 1, 2, 3};
+
+    @TempDir
+    Path directory;
+
+    private final List<Object> events = new ArrayList<>();
+
+    @Test
+    void storesAnUploadUnderItsDigestAndSharesDuplicates() throws Exception {
+        ImageStore store = store();
+
+        Path first = store.store(directory.toString(), upload(PNG), path -> path).get();
+        Path second = store.store(directory.toString(), upload(PNG), path -> path).get();
+
+        assertThat(first).isEqualTo(second);
+        assertThat(first.getFileName().toString()).isEqualTo(sha256(PNG) + ".png");
+        assertThat(first).hasBinaryContent(PNG);
+        try (Stream<Path> files = Files.list(directory)) {
+            // the duplicate's temporary file is gone
+            assertThat(files).containsExactly(first);
+        }
+        assertThat(events).containsExactly(new ImageStoredEvent(first));
+    }
+
+    @Test
+    void refusesAnUploadThatIsNotAnImageBeforeWritingIt() {
+        ImageStore store = store();
+
+        assertThatThrownBy(() -> store.store(directory.toString(), upload("not an image".getBytes()), path -> path).get())
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RequestValidationException.class);
+        assertThat(directory).isEmptyDirectory();
+    }
+
+    @Test
+    void canonicalizesUrlsOfContentAddressedFilesOnly() {
+        ImageStore store = store();
+        String stored = sha256(PNG) + ".png";
+
+        assertThat(store.canonicalUrl("http://localhost:8080/images/users/" + stored)).isEqualTo("/images/users/" + stored);
+        assertThat(store.canonicalUrl("/images/" + stored)).isEqualTo("/images/" + stored);
+        assertThat(store.canonicalUrl("http://localhost:8080/images/photo.png")).isEqualTo("http://localhost:8080/images/photo.png");
+        assertThat(store.urlOf(directory.resolve("users").resolve(stored))).isEqualTo("/images/users/" + stored);
+    }
+
+    private ImageStore store() {
+        return new ImageStore(directory.toString(), 1, 4, 45_000, 600_000, null, null, events::add);
+    }
+
+    private static MockMultipartFile upload(byte[] content) {
+        return new MockMultipartFile("imageUrl", "upload.bin", "application/octet-stream", content);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.perso.ecomm.product;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductImportServiceTest {
+
+    @Test
+    void headerIsTrimmedLowerCasedAndStrippedOfTheByteOrderMark() throws IOException {
+        ProductImportService.CsvRows rows = csv("\uFEFFName , PRICE\nTea,2.5\n");
+
+        ProductImportService.RawRow row = rows.next();
+
+        assertThat(row.line()).isEqualTo(2);
+        assertThat(row.error()).isNull();
+        assertThat(row.fields()).containsEntry("name", "Tea").containsEntry("price", "2.5");
+        assertThat(rows.next()).isNull();
+    }
+
+    @Test
+    void quotedFieldsKeepCommasDoubledQuotesAndLineBreaks() throws IOException {
+        ProductImportService.CsvRows rows = csv("""
+                name,description
+                "Tea, green","The ""best""
+                one"
+                Coffee,plain
+                """);
+
+        ProductImportService.RawRow first = rows.next();
+        ProductImportService.RawRow second = rows.next();
+
+        assertThat(first.fields())
+                .containsEntry("name", "Tea, green")
+                .containsEntry("description", "The \"best\"\none");
+        assertThat(first.line()).isEqualTo(2);
+        assertThat(second.line()).isEqualTo(4);
+        assertThat(second.fields()).containsEntry("name", "Coffee").containsEntry("description", "plain");
+    }
+
+    @Test
+    void blankLinesAreSkippedAndStillCounted() throws IOException {
+        ProductImportService.CsvRows rows = csv("name\n\nTea\n\n");
+
+        ProductImportService.RawRow row = rows.next();
+
+        assertThat(row.line()).isEqualTo(3);
+        assertThat(row.fields()).containsEntry("name", "Tea");
+        assertThat(rows.next()).isNull();
+    }
+
+    @Test
+    void emptyTrailingFieldsAreKept() throws IOException {
+        ProductImportService.RawRow row = csv("name,description,category\nTea,,\n").next();
+
+        assertThat(row.fields())
+                .containsEntry("name", "Tea")
+                .containsEntry("description", "")
+                .containsEntry("category", "");
+    }
+
+    @Test
+    void shortRowsOnlyCarryTheColumnsTheyHave() throws IOException {
+        ProductImportService.RawRow row = csv("name,description\nTea\n").next();
+
+        assertThat(row.error()).isNull();
+        assertThat(row.fields()).containsOnlyKeys("name");
+    }
+
+    @Test
+    void rowsWithExtraColumnsAreReportedWithTheirLine() throws IOException {
+        ProductImportService.RawRow row = csv("name,price\nTea,2.5,extra\n").next();
+
+        assertThat(row.line()).isEqualTo(2);
+        assertThat(row.fields()).isNull();
+        assertThat(row.error()).isEqualTo("Expected 2 columns, found 3");
+    }
+
+    @Test
+    void emptyFileIsRejected() {
+        assertThatThrownBy(() -> csv("")).isInstanceOf(IOException.class).hasMessage("Empty CSV file");
+    }
+
+    private static ProductImportService.CsvRows csv(String content) throws IOException {
+        return new ProductImportService.CsvRows(new BufferedReader(new StringReader(content)));
+    }
+}
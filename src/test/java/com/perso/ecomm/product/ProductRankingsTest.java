@@ -0,0 +1,99 @@
+package com.perso.ecomm.product;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductRankingsTest {
+
+    private static final Comparator<ProductRankings.Ranked> BIGGEST_DISCOUNT_FIRST = Comparator
+            .comparingDouble(ProductRankings.Ranked::discountPercent).reversed()
+            .thenComparing(ProductRankings.Ranked::productId, Comparator.reverseOrder());
+
+    private final List<Product> database = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final ProductRankings.TopK topK = new ProductRankings.TopK(2, BIGGEST_DISCOUNT_FIRST, () -> {
+        loads.incrementAndGet();
+        return database.stream()
+                .sorted(Comparator.comparingDouble(Product::getDiscountPercent).reversed())
+                .limit(2)
+                .toList();
+    });
+
+    @Test
+    void rejectedProductMarksOverflowSoALaterDeleteReloads() {
+        Product first = save(1L, 60);
+        topK.reload();
+
+        Product second = save(2L, 80);
+        topK.offer(ProductRankings.Ranked.of(second));
+        Product rejected = save(3L, 50);
+        topK.offer(ProductRankings.Ranked.of(rejected));
+        assertThat(topK.snapshot()).containsExactly(second, first);
+
+        database.remove(second);
+        topK.remove(2L);
+
+        assertThat(topK.snapshot()).containsExactly(first, rejected);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void entryMovedToTheEndOfAFullListReloads() {
+        Product best = save(1L, 80);
+        Product runnerUp = save(2L, 60);
+        Product notLoaded = save(3L, 55);
+        topK.reload();
+        assertThat(topK.snapshot()).containsExactly(best, runnerUp);
+
+        best.setDiscountPercent(50);
+        topK.offer(ProductRankings.Ranked.of(best));
+
+        assertThat(topK.snapshot()).containsExactly(runnerUp, notLoaded);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void staleListIsNotRepublishedByLaterChanges() {
+        Product best = save(1L, 80);
+        Product runnerUp = save(2L, 60);
+        Product notLoaded = save(3L, 55);
+        topK.reload();
+
+        best.setDiscountPercent(50);
+        topK.offer(ProductRankings.Ranked.of(best));
+        runnerUp.setDiscountPercent(70);
+        topK.offer(ProductRankings.Ranked.of(runnerUp));
+
+        assertThat(topK.snapshot()).containsExactly(runnerUp, notLoaded);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void entryStayingAheadOfTheEndIsUpdatedInPlace() {
+        Product best = save(1L, 80);
+        Product runnerUp = save(2L, 60);
+        save(3L, 55);
+        topK.reload();
+
+        runnerUp.setDiscountPercent(90);
+        topK.offer(ProductRankings.Ranked.of(runnerUp));
+
+        assertThat(topK.snapshot()).containsExactly(runnerUp, best);
+        assertThat(loads).hasValue(1);
+    }
+
+    private Product save(Long id, double discountPercent) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setDiscountPercent(discountPercent);
+        database.add(product);
+        return product;
+    }
+}
@@ -0,0 +1,70 @@
+package com.perso.ecomm.product;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSuggesterTest {
+
+    @Test
+    void bestKeepsTheLowestDistinctRanksInOrder() {
+        int[] products = {7, 3, 9, 3, 1, 7, 4};
+
+        assertThat(ProductSuggester.Suggestions.best(products, 0, products.length, 3)).containsExactly(1, 3, 4);
+    }
+
+    @Test
+    void bestOnlyLooksAtItsRange() {
+        int[] products = {0, 5, 2, 8, 1};
+
+        assertThat(ProductSuggester.Suggestions.best(products, 1, 4, 10)).containsExactly(2, 5, 8);
+        assertThat(ProductSuggester.Suggestions.best(products, 2, 2, 10)).isEmpty();
+    }
+
+    @Test
+    void bestHandlesALimitOfOne() {
+        int[] products = {4, 2, 6, 2, 3};
+
+        assertThat(ProductSuggester.Suggestions.best(products, 0, products.length, 1)).containsExactly(2);
+    }
+
+    @Test
+    void everyWordStartIsAKeyAndProductsComeBestSellerFirst() {
+        Map<Long, String> names = Map.of(
+                1L, "Red Running Shoes",
+                2L, "Running socks",
+                3L, "Rumpsteak");
+        ProductSuggester.Suggestions suggestions = ProductSuggester.Suggestions.build(names, Map.of(1L, 5), 10, 64);
+
+        assertThat(ids(suggestions.lookup("run", 10, 64))).containsExactly(1L, 2L);
+        assertThat(ids(suggestions.lookup("ru", 10, 64))).containsExactly(1L, 3L, 2L);
+        assertThat(ids(suggestions.lookup("sho", 10, 64))).containsExactly(1L);
+        assertThat(ids(suggestions.lookup("s", 10, 64))).containsExactly(1L, 2L);
+        assertThat(ids(suggestions.lookup("unning", 10, 64))).isEmpty();
+        assertThat(suggestions.lookup("red r", 10, 64))
+                .containsExactly(new ProductSuggester.Suggestion(1L, "Red Running Shoes"));
+    }
+
+    @Test
+    void widePrefixesArePrecomputedAndAgreeWithAScan() {
+        Map<Long, String> names = new HashMap<>();
+        for (long id = 1; id <= 40; id++) {
+            names.put(id, "shoe " + id);
+        }
+        ProductSuggester.Suggestions suggestions = ProductSuggester.Suggestions.build(names, Map.of(17L, 3, 4L, 2), 5, 8);
+        ProductSuggester.Suggestions scanned = ProductSuggester.Suggestions.build(names, Map.of(17L, 3, 4L, 2), 5, 1000);
+
+        assertThat(suggestions.top()).containsKeys("s", "sh", "sho", "shoe");
+        assertThat(scanned.top()).isEmpty();
+        assertThat(ids(suggestions.lookup("sho", 5, 8))).containsExactly(17L, 4L, 40L, 39L, 38L);
+        assertThat(ids(suggestions.lookup("sho", 5, 8))).isEqualTo(ids(scanned.lookup("sho", 5, 1000)));
+    }
+
+    private static List<Long> ids(List<ProductSuggester.Suggestion> suggestions) {
+        return suggestions.stream().map(ProductSuggester.Suggestion::productId).toList();
+    }
+}
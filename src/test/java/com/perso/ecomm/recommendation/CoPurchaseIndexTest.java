@@ -0,0 +1,70 @@
+package com.perso.ecomm.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoPurchaseIndexTest {
+
+    @Test
+    void topIsOrderedByCountThenByLowerProductId() {
+        CoPurchaseIndex.Row row = new CoPurchaseIndex.Row();
+        increment(row, 30, 2);
+        increment(row, 20, 1);
+        increment(row, 10, 2);
+        increment(row, 40, 3);
+
+        row.refreshTop(3);
+
+        assertThat(row.top).containsExactly(40, 10, 30);
+    }
+
+    @Test
+    void fullRowKeepsTheMostFrequentHalfBeforeTakingANewNeighbour() {
+        CoPurchaseIndex.Row row = new CoPurchaseIndex.Row();
+        increment(row, 10, 3);
+        increment(row, 20, 1);
+        increment(row, 30, 2);
+        increment(row, 40, 1);
+
+        row.increment(50, 4);
+        row.refreshTop(10);
+
+        assertThat(row.top).containsExactly(10, 30, 50);
+    }
+
+    @Test
+    void countsSurviveAPruneAndNeighboursStaySorted() {
+        CoPurchaseIndex.Row row = new CoPurchaseIndex.Row();
+        increment(row, 40, 5);
+        increment(row, 10, 1);
+        increment(row, 30, 4);
+        increment(row, 20, 1);
+
+        row.increment(25, 4);
+        // binary search must still find 30 and 40 after the prune moved them
+        increment(row, 30, 2);
+        increment(row, 25, 6);
+        row.refreshTop(10);
+
+        assertThat(row.top).containsExactly(25, 30, 40);
+    }
+
+    @Test
+    void rowGrowsUpToMaxTrackedWithoutPruning() {
+        CoPurchaseIndex.Row row = new CoPurchaseIndex.Row();
+        for (long neighbour = 1; neighbour <= 12; neighbour++) {
+            row.increment(neighbour, 12);
+        }
+
+        row.refreshTop(20);
+
+        assertThat(row.top).containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12);
+    }
+
+    private static void increment(CoPurchaseIndex.Row row, long neighbour, int times) {
+        for (int i = 0; i < times; i++) {
+            row.increment(neighbour, 4);
+        }
+    }
+}
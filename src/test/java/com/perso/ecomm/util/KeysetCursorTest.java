@@ -0,0 +1,94 @@
+package com.perso.ecomm.util;
+
+import com.perso.ecomm.exception.RequestValidationException;
+import com.perso.ecomm.orders.order.Order;
+import com.perso.ecomm.orders.order.OrderStatus;
+import com.perso.ecomm.product.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTest {
+
+    private static final Sort DEFAULT_SORT = Sort.by(Sort.Direction.ASC, "productId");
+
+    @Test
+    void roundTripsSortAndTypedKeys() {
+        Sort sort = Sort.by(Sort.Direction.DESC, "creationDate");
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("creationDate", new Date(1_700_000_000_123L));
+        keys.put("productId", 42L);
+
+        String token = KeysetCursor.encode(ScrollPosition.forward(keys), sort);
+        KeysetCursor.Cursor cursor = KeysetCursor.decode(token, Product.class, DEFAULT_SORT);
+
+        assertThat(cursor.sort()).isEqualTo(sort);
+        assertThat(cursor.position().getKeys()).containsOnlyKeys("creationDate", "productId");
+        assertThat(((Date) cursor.position().getKeys().get("creationDate")).getTime()).isEqualTo(1_700_000_000_123L);
+        assertThat(cursor.position().getKeys().get("productId")).isEqualTo(42L);
+    }
+
+    @Test
+    void roundTripsStringsWithSeparatorsAndDoubles() {
+        Sort sort = Sort.by(Sort.Direction.ASC, "name");
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("name", "tea & coffee=50%, é");
+        keys.put("priceAfterDiscount", 12.5);
+
+        String token = KeysetCursor.encode(ScrollPosition.forward(keys), sort);
+        KeysetCursor.Cursor cursor = KeysetCursor.decode(token, Product.class, DEFAULT_SORT);
+
+        assertThat(token).doesNotContain("+", "/", "=");
+        assertThat(cursor.position().getKeys()).containsEntry("name", "tea & coffee=50%, é");
+        assertThat(cursor.position().getKeys()).containsEntry("priceAfterDiscount", 12.5);
+    }
+
+    @Test
+    void roundTripsEnums() {
+        Sort sort = Sort.by(Sort.Direction.ASC, "status");
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("status", OrderStatus.SHIPPED);
+        keys.put("orderId", 7L);
+
+        KeysetCursor.Cursor cursor = KeysetCursor.decode(
+                KeysetCursor.encode(ScrollPosition.forward(keys), sort), Order.class, DEFAULT_SORT);
+
+        assertThat(cursor.position().getKeys()).containsEntry("status", OrderStatus.SHIPPED);
+        assertThat(cursor.position().getKeys()).containsEntry("orderId", 7L);
+    }
+
+    @Test
+    void missingTokenStartsAtTheFirstPageWithTheDefaultSort() {
+        KeysetCursor.Cursor cursor = KeysetCursor.decode(" ", Product.class, DEFAULT_SORT);
+
+        assertThat(cursor.sort()).isEqualTo(DEFAULT_SORT);
+        assertThat(cursor.position().isInitial()).isTrue();
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThatThrownBy(() -> KeysetCursor.decode("not base64!", Product.class, DEFAULT_SORT))
+                .isInstanceOf(RequestValidationException.class);
+        assertThatThrownBy(() -> KeysetCursor.decode(token("productId=abc"), Product.class, DEFAULT_SORT))
+                .isInstanceOf(RequestValidationException.class);
+    }
+
+    @Test
+    void rejectsKeysThatAreNotEntityFields() {
+        assertThatThrownBy(() -> KeysetCursor.decode(token("password=x"), Product.class, DEFAULT_SORT))
+                .isInstanceOf(RequestValidationException.class);
+    }
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}